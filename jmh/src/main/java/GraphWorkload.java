@@ -0,0 +1,93 @@
+import benchmarks.Workload;
+
+/**
+ * The Workload of the benchmarks, on a graph made by GraphGenerator. It is in
+ * the unnamed package with the graph classes so it can call them.
+ */
+public class GraphWorkload implements Workload {
+
+	private final Graph graph;
+	private final String[] names;
+
+	// edge e goes from sources[e] to dests[e] and costs costs[e]
+	private final String[] sources;
+	private final String[] dests;
+	private final double[] costs;
+
+	/**
+	 * Make a workload on a new generated graph, as Workload.create describes.
+	 * <br>
+	 * pre: shape is sparse, grid, powerLaw or dense, size > 0
+	 *
+	 * @param shape the generator to use
+	 * @param size  the number of vertices
+	 * @param seed  the random seed
+	 */
+	public GraphWorkload(String shape, int size, long seed) {
+		graph = generate(shape, size, seed);
+		CompactGraph compact = graph.freeze();
+		int n = compact.numVertices();
+		names = new String[n];
+		for (int v = 0; v < n; v++) {
+			names[v] = compact.nameOf(v);
+		}
+		int m = compact.numEdges();
+		sources = new String[m];
+		dests = new String[m];
+		costs = new double[m];
+		for (int v = 0; v < n; v++) {
+			for (int e = compact.firstEdge(v); e < compact.endEdge(v); e++) {
+				sources[e] = names[v];
+				dests[e] = names[compact.target(e)];
+				costs[e] = compact.weight(e);
+			}
+		}
+	}
+
+	private static Graph generate(String shape, int size, long seed) {
+		if (shape == null) {
+			throw new IllegalArgumentException("Violation of precondition. " + "shape may not be null.");
+		}
+		switch (shape) {
+		case "sparse":
+			return GraphGenerator.randomSparse(size, 4, seed);
+		case "grid":
+			int side = (int) Math.round(Math.sqrt(size));
+			return GraphGenerator.grid(side, side, seed);
+		case "powerLaw":
+			return GraphGenerator.powerLaw(size, 3, seed);
+		case "dense":
+			return GraphGenerator.dense(size, 0.1, seed);
+		default:
+			throw new IllegalArgumentException("Violation of precondition. " + "Unknown graph shape " + shape);
+		}
+	}
+
+	public int numVertices() {
+		return names.length;
+	}
+
+	public Object addEdges() {
+		Graph result = new Graph();
+		for (int e = 0; e < sources.length; e++) {
+			result.addEdge(sources[e], dests[e], costs[e]);
+		}
+		return result;
+	}
+
+	public Object dijkstra(int start) {
+		return graph.dijkstra(names[start]);
+	}
+
+	public Object findUnweightedShortestPath(int start) {
+		return graph.findUnweightedShortestPath(names[start]);
+	}
+
+	public void findAllPaths(boolean weighted) {
+		graph.findAllPaths(weighted);
+	}
+
+	public Object getAllPaths() {
+		return graph.getAllPaths();
+	}
+}
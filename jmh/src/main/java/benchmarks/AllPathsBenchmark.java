@@ -0,0 +1,58 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times findAllPaths and getAllPaths. findAllPaths searches from every vertex,
+ * so these run on smaller graphs than SearchBenchmark, including dense ones.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 4)
+@Fork(2)
+public class AllPathsBenchmark {
+
+	@Param({ "sparse", "grid", "powerLaw", "dense" })
+	public String shape;
+
+	@Param({ "200", "1000", "2000" })
+	public int size;
+
+	private Workload workload;
+
+	@Setup
+	public void setUp() {
+		workload = Workload.create(shape, size, 314);
+		// so getAllPaths has results to read
+		workload.findAllPaths(true);
+	}
+
+	@Benchmark
+	public void findAllPathsUnweighted() {
+		workload.findAllPaths(false);
+	}
+
+	@Benchmark
+	public void findAllPathsWeighted() {
+		workload.findAllPaths(true);
+	}
+
+	@Benchmark
+	public Object getAllPaths() {
+		return workload.getAllPaths();
+	}
+}
@@ -0,0 +1,73 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times building a graph with addEdge and the single source searches, on
+ * sparse, grid and power law graphs of each size. Each benchmark reports its
+ * throughput and, from the sample time mode, its latency percentiles; run with
+ * -prof gc for the bytes allocated per operation.
+ *
+ * The searches start from a different vertex each call. Graph keeps the
+ * current start vertex, so each thread gets its own graph.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class SearchBenchmark {
+
+	@Param({ "sparse", "grid", "powerLaw" })
+	public String shape;
+
+	@Param({ "1000", "10000", "100000" })
+	public int size;
+
+	private Workload workload;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		workload = Workload.create(shape, size, 314);
+	}
+
+	// the start vertex of the next search
+	private int nextStart() {
+		int result = next;
+		next = next + 1 == workload.numVertices() ? 0 : next + 1;
+		return result;
+	}
+
+	/**
+	 * One operation adds every edge of the graph to a new Graph, so divide by
+	 * the number of edges for the time of one addEdge.
+	 */
+	@Benchmark
+	public Object addEdge() {
+		return workload.addEdges();
+	}
+
+	@Benchmark
+	public Object dijkstra() {
+		return workload.dijkstra(nextStart());
+	}
+
+	@Benchmark
+	public Object findUnweightedShortestPath() {
+		return workload.findUnweightedShortestPath(nextStart());
+	}
+}
@@ -0,0 +1,87 @@
+package benchmarks;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * The Graph operations the benchmarks time, on one graph made by
+ * GraphGenerator. JMH does not allow benchmarks in the unnamed package, and a
+ * named package cannot import the graph classes from it, so the benchmarks
+ * reach them through this interface. GraphWorkload in the unnamed package
+ * implements it. Every method returns what the operation made so the
+ * benchmark can hand it back to JMH and the work is not optimized away.
+ */
+public interface Workload {
+
+	/**
+	 * Make a workload on a new generated graph. shape is sparse, grid, powerLaw
+	 * or dense. A grid has the square of the whole number nearest the square
+	 * root of size vertices, the others exactly size. <br>
+	 * pre: shape != null, size > 0
+	 *
+	 * @param shape the generator to use
+	 * @param size  the number of vertices
+	 * @param seed  the random seed
+	 * @return a workload on the new graph.
+	 */
+	static Workload create(String shape, int size, long seed) {
+		try {
+			return (Workload) Class.forName("GraphWorkload").getConstructor(String.class, int.class, long.class)
+					.newInstance(shape, size, seed);
+		} catch (InvocationTargetException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("GraphWorkload is not on the class path.", e);
+		}
+	}
+
+	/**
+	 * Return the number of vertices in the graph.
+	 *
+	 * @return the number of vertices.
+	 */
+	int numVertices();
+
+	/**
+	 * Build a new Graph with the same edges, adding them one at a time with
+	 * addEdge.
+	 *
+	 * @return the new Graph.
+	 */
+	Object addEdges();
+
+	/**
+	 * Run Graph.dijkstra from the vertex with id start. <br>
+	 * pre: 0 <= start < numVertices()
+	 *
+	 * @param start the id of the starting vertex
+	 * @return the shortest path tree.
+	 */
+	Object dijkstra(int start);
+
+	/**
+	 * Run Graph.findUnweightedShortestPath from the vertex with id start. <br>
+	 * pre: 0 <= start < numVertices()
+	 *
+	 * @param start the id of the starting vertex
+	 * @return the shortest path tree.
+	 */
+	Object findUnweightedShortestPath(int start);
+
+	/**
+	 * Run Graph.findAllPaths.
+	 *
+	 * @param weighted true to use dijkstra, false to count edges
+	 */
+	void findAllPaths(boolean weighted);
+
+	/**
+	 * Run Graph.getAllPaths. <br>
+	 * pre: findAllPaths called.
+	 *
+	 * @return the path statistics of each vertex.
+	 */
+	Object getAllPaths();
+}
@@ -0,0 +1,1452 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * A read only copy of a Graph stored in compressed sparse row form. Vertices
+ * are numbered 0 to numVertices() - 1. The edges leaving vertex v are stored at
+ * indices offsets[v] up to but not including offsets[v + 1] of the targets and
+ * weights arrays. Create one with Graph.freeze().
+ *
+ * The search methods mirror the ones in Graph, but work on int ids and flat
+ * arrays instead of Vertex and Edge objects. The methods that take a
+ * SearchState only write to that state, so any number of threads may search
+ * one CompactGraph at once as long as each uses its own SearchState.
+ */
+public class CompactGraph {
+
+	private static final double INFINITY = SearchState.INFINITY;
+
+	private static final int NO_VERTEX = SearchState.NO_VERTEX;
+
+	// number of sources handed to each task by the parallel findAllPaths. A
+	// multiple of 64 so the unweighted tasks fill whole words of their
+	// multi source search.
+	private static final int SOURCES_PER_TASK = 64;
+
+	// The unweighted search switches to bottom up steps when the edges leaving
+	// the frontier are more than 1 / TO_BOTTOM_UP of the edges leaving the
+	// unvisited vertices, and back to top down once the frontier holds fewer
+	// than 1 / TO_TOP_DOWN of the vertices. The values are the ones Beamer et
+	// al. found to work well on a range of graphs. Graphs smaller than
+	// MIN_BOTTOM_UP_VERTICES are always searched top down.
+	private static final int TO_BOTTOM_UP = 14;
+	private static final int TO_TOP_DOWN = 24;
+	private static final int MIN_BOTTOM_UP_VERTICES = 1024;
+
+	// names[id] is the label of the vertex with the given id
+	private final String[] names;
+	private final Map<String, Integer> ids;
+
+	// the adjacency in compressed sparse row form
+	private final int[] offsets;
+	private final int[] targets;
+	private final double[] weights;
+
+	// optional vertex positions. null if no vertex has a position,
+	// otherwise NaN for the vertices without one.
+	private final double[] xs;
+	private final double[] ys;
+
+	// the largest cost per unit of distance that no edge between
+	// positioned vertices beats. NaN until first computed.
+	private volatile double minCostPerUnitDistance = Double.NaN;
+
+	// the same vertices with every edge reversed. Made when first needed.
+	private volatile CompactGraph reverse;
+
+	// result of the most recent call to findUnweightedShortestPath or
+	// dijkstra without a caller supplied SearchState
+	private ShortestPathTree currentTree;
+
+	// counts the work of the searches when set, otherwise null and the
+	// searches count nothing
+	private volatile SearchMetrics metrics;
+
+	// results of findAllPaths
+	private boolean allPathsFound;
+	private int[] numVertexConnected;
+	private double[] totalUnweightedPathLength;
+	private double[] totalWeightedPathLength;
+	private int[] longest;
+	private double longestCost;
+
+	// pre: offsets.length == names.length + 1,
+	// targets.length == weights.length == offsets[names.length]
+	CompactGraph(String[] names, int[] offsets, int[] targets, double[] weights) {
+		this(names, makeIds(names), null, null, offsets, targets, weights);
+	}
+
+	// pre: xs and ys are both null or both names.length long
+	CompactGraph(String[] names, double[] xs, double[] ys, int[] offsets, int[] targets, double[] weights) {
+		this(names, makeIds(names), xs, ys, offsets, targets, weights);
+	}
+
+	// pre: ids maps each name to its index in names, xs and ys are both null
+	// or both names.length long
+	CompactGraph(String[] names, Map<String, Integer> ids, double[] xs, double[] ys, int[] offsets,
+			int[] targets, double[] weights) {
+		this.names = names;
+		this.ids = ids;
+		this.xs = xs;
+		this.ys = ys;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.weights = weights;
+		longest = new int[0];
+	}
+
+	private static Map<String, Integer> makeIds(String[] names) {
+		Map<String, Integer> result = new HashMap<>();
+		for (int i = 0; i < names.length; i++) {
+			result.put(names[i], i);
+		}
+		return result;
+	}
+
+	/**
+	 * Return a graph with the same vertices and ids as this one but with every
+	 * edge reversed, so the edges leaving v in the result are the edges entering
+	 * v in this graph. The reverse is made the first time it is asked for and kept
+	 * for later calls.
+	 *
+	 * @return this graph with its edges reversed.
+	 */
+	public CompactGraph reverse() {
+		CompactGraph result = reverse;
+		if (result == null) {
+			synchronized (this) {
+				result = reverse;
+				if (result == null) {
+					result = makeReverse();
+					result.reverse = this;
+					reverse = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	// build the reverse adjacency with a counting sort on edge targets
+	private CompactGraph makeReverse() {
+		int n = names.length;
+		int[] rOffsets = new int[n + 1];
+		for (int e = 0; e < targets.length; e++) {
+			rOffsets[targets[e] + 1]++;
+		}
+		for (int v = 0; v < n; v++) {
+			rOffsets[v + 1] += rOffsets[v];
+		}
+		int[] next = Arrays.copyOf(rOffsets, n);
+		int[] rTargets = new int[targets.length];
+		double[] rWeights = new double[weights.length];
+		for (int v = 0; v < n; v++) {
+			for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+				int index = next[targets[e]]++;
+				rTargets[index] = v;
+				rWeights[index] = weights[e];
+			}
+		}
+		return new CompactGraph(names, ids, xs, ys, rOffsets, rTargets, rWeights);
+	}
+
+	// Return a copy of this graph with the vertices addedNames added after the
+	// existing ones, then for i in order the edge from sources[i] to dests[i]
+	// given cost costs[i], added after the other edges of sources[i] if it is
+	// new, then vertex placed[i] moved to (placedX[i], placedY[i]). The same as
+	// making the changes to the Graph and freezing it again, but the edges of
+	// the vertices that do not change are copied in bulk and any array that
+	// does not change is shared. Used by VersionedGraph.
+	// pre: addedNames are not in this graph, every id is below the new number
+	// of vertices, costs are > 0
+	CompactGraph withChanges(String[] addedNames, int[] sources, int[] dests, double[] costs, int numEdges,
+			int[] placed, double[] placedX, double[] placedY, int numPlaced) {
+		int oldN = names.length;
+		int n = oldN + addedNames.length;
+		String[] newNames = names;
+		Map<String, Integer> newIds = ids;
+		if (addedNames.length > 0) {
+			// this graph may be in use, so its map is copied, not changed
+			newNames = Arrays.copyOf(names, n);
+			newIds = new HashMap<>(ids);
+			for (int i = 0; i < addedNames.length; i++) {
+				newNames[oldN + i] = addedNames[i];
+				newIds.put(addedNames[i], oldN + i);
+			}
+		}
+		double[] newXs = xs;
+		double[] newYs = ys;
+		if (numPlaced > 0 || (xs != null && addedNames.length > 0)) {
+			newXs = new double[n];
+			newYs = new double[n];
+			Arrays.fill(newXs, Double.NaN);
+			Arrays.fill(newYs, Double.NaN);
+			if (xs != null) {
+				System.arraycopy(xs, 0, newXs, 0, oldN);
+				System.arraycopy(ys, 0, newYs, 0, oldN);
+			}
+			for (int i = 0; i < numPlaced; i++) {
+				newXs[placed[i]] = placedX[i];
+				newYs[placed[i]] = placedY[i];
+			}
+		}
+		int[] newOffsets = offsets;
+		int[] newTargets = targets;
+		double[] newWeights = weights;
+		if (numEdges > 0) {
+			EdgeMerge merge = new EdgeMerge(n, sources, dests, costs, numEdges);
+			newOffsets = merge.offsets;
+			newTargets = merge.targets;
+			newWeights = merge.weights;
+		} else if (addedNames.length > 0) {
+			newOffsets = Arrays.copyOf(offsets, n + 1);
+			Arrays.fill(newOffsets, oldN + 1, n + 1, targets.length);
+		}
+		CompactGraph result = new CompactGraph(newNames, newIds, newXs, newYs, newOffsets, newTargets, newWeights);
+		result.metrics = metrics;
+		return result;
+	}
+
+	// Builds the edge arrays for withChanges. The changes are grouped by
+	// source with a sort. A changed source gets its old edges, with any new
+	// costs, then its new edges. The edges of each run of unchanged sources
+	// between two changed ones are copied with one arraycopy.
+	private class EdgeMerge {
+
+		// a source with more old and new edges than this looks its targets
+		// up in a map instead of scanning them
+		private static final int SCAN_LIMIT = 16;
+
+		private final int[] offsets;
+		private final int[] targets;
+		private final double[] weights;
+
+		private EdgeMerge(int n, int[] sources, int[] dests, double[] costs, int numEdges) {
+			int oldN = names.length;
+			int[] oldOffsets = CompactGraph.this.offsets;
+			int[] oldTargets = CompactGraph.this.targets;
+			double[] oldWeights = CompactGraph.this.weights;
+			// sorting (source, index) pairs keeps the changes of each source in
+			// the order they were made
+			long[] order = new long[numEdges];
+			for (int i = 0; i < numEdges; i++) {
+				order[i] = ((long) sources[i] << 32) | i;
+			}
+			Arrays.sort(order);
+
+			// the edges to add, grouped by source in id order, and the new
+			// costs of old edges
+			int[] added = new int[n];
+			int[] addDests = new int[numEdges];
+			double[] addCosts = new double[numEdges];
+			int numAdded = 0;
+			int[] changedSources = new int[numEdges];
+			int numChanged = 0;
+			int[] costEdges = new int[numEdges];
+			int[] costSources = new int[numEdges];
+			double[] newCosts = new double[numEdges];
+			int numCosts = 0;
+			Map<Integer, Integer> slots = new HashMap<>();
+			int i = 0;
+			while (i < numEdges) {
+				int source = (int) (order[i] >>> 32);
+				int groupEnd = i;
+				while (groupEnd < numEdges && (int) (order[groupEnd] >>> 32) == source) {
+					groupEnd++;
+				}
+				int oldStart = source < oldN ? oldOffsets[source] : 0;
+				int oldEnd = source < oldN ? oldOffsets[source + 1] : 0;
+				int groupAdded = numAdded;
+				// slot e >= 0 is old edge e, slot -1 - j is added edge j
+				boolean useMap = oldEnd - oldStart + groupEnd - i > SCAN_LIMIT;
+				if (useMap) {
+					slots.clear();
+					for (int e = oldStart; e < oldEnd; e++) {
+						slots.put(oldTargets[e], e);
+					}
+				}
+				for (; i < groupEnd; i++) {
+					int change = (int) order[i];
+					int dest = dests[change];
+					Integer slot = null;
+					if (useMap) {
+						slot = slots.get(dest);
+					} else {
+						for (int e = oldStart; e < oldEnd && slot == null; e++) {
+							if (oldTargets[e] == dest) {
+								slot = e;
+							}
+						}
+						for (int j = groupAdded; j < numAdded && slot == null; j++) {
+							if (addDests[j] == dest) {
+								slot = -1 - j;
+							}
+						}
+					}
+					if (slot == null) {
+						addDests[numAdded] = dest;
+						addCosts[numAdded] = costs[change];
+						if (useMap) {
+							slots.put(dest, -1 - numAdded);
+						}
+						numAdded++;
+						added[source]++;
+					} else if (slot < 0) {
+						addCosts[-1 - slot] = costs[change];
+					} else {
+						costEdges[numCosts] = slot;
+						costSources[numCosts] = source;
+						newCosts[numCosts] = costs[change];
+						numCosts++;
+					}
+				}
+				changedSources[numChanged++] = source;
+			}
+
+			offsets = new int[n + 1];
+			for (int v = 0; v < n; v++) {
+				int oldDegree = v < oldN ? oldOffsets[v + 1] - oldOffsets[v] : 0;
+				offsets[v + 1] = offsets[v] + oldDegree + added[v];
+			}
+			targets = new int[offsets[n]];
+			weights = new double[offsets[n]];
+			int runStart = 0;
+			int next = 0;
+			for (int c = 0; c < numChanged; c++) {
+				int source = changedSources[c];
+				// the old edges of runStart up to and including source
+				copyOld(oldOffsets, oldTargets, oldWeights, runStart, source + 1);
+				int to = offsets[source + 1] - added[source];
+				System.arraycopy(addDests, next, targets, to, added[source]);
+				System.arraycopy(addCosts, next, weights, to, added[source]);
+				next += added[source];
+				runStart = source + 1;
+			}
+			copyOld(oldOffsets, oldTargets, oldWeights, runStart, n);
+			for (int c = 0; c < numCosts; c++) {
+				int source = costSources[c];
+				weights[costEdges[c] + offsets[source] - oldOffsets[source]] = newCosts[c];
+			}
+		}
+
+		// copy the old edges of vertices first to last - 1 to their new place
+		private void copyOld(int[] oldOffsets, int[] oldTargets, double[] oldWeights, int first, int last) {
+			int oldN = names.length;
+			int from = oldOffsets[Math.min(first, oldN)];
+			int length = oldOffsets[Math.min(last, oldN)] - from;
+			if (length > 0) {
+				System.arraycopy(oldTargets, from, targets, offsets[first], length);
+				System.arraycopy(oldWeights, from, weights, offsets[first], length);
+			}
+		}
+	}
+
+	/**
+	 * Count the work of the searches of this graph in metrics from now on, or
+	 * stop counting if metrics is null. The searches check for metrics once
+	 * each, so without them they run exactly as they would have. The unweighted
+	 * search only works top down while counting.
+	 *
+	 * @param metrics where to count the searches, or null.
+	 */
+	public void setMetrics(SearchMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Return the metrics set with setMetrics, or null if there are none.
+	 *
+	 * @return where the searches are counted.
+	 */
+	public SearchMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Return true if the vertex with the given id has a position. <br>
+	 * pre: 0 <= id < numVertices()
+	 *
+	 * @param id The id of the vertex.
+	 * @return true if the vertex has a position.
+	 */
+	public boolean hasPosition(int id) {
+		checkId(id);
+		return xs != null && !Double.isNaN(xs[id]);
+	}
+
+	/**
+	 * Return the x coordinate of the vertex with the given id. <br>
+	 * pre: hasPosition(id)
+	 *
+	 * @param id The id of the vertex.
+	 * @return the x coordinate of the vertex.
+	 */
+	public double getX(int id) {
+		checkPosition(id);
+		return xs[id];
+	}
+
+	/**
+	 * Return the y coordinate of the vertex with the given id. <br>
+	 * pre: hasPosition(id)
+	 *
+	 * @param id The id of the vertex.
+	 * @return the y coordinate of the vertex.
+	 */
+	public double getY(int id) {
+		checkPosition(id);
+		return ys[id];
+	}
+
+	// Euclidean distance between two positioned vertices, or 0 if either
+	// has no position.
+	double distance(int u, int v) {
+		if (xs == null || Double.isNaN(xs[u]) || Double.isNaN(xs[v])) {
+			return 0;
+		}
+		double dx = xs[u] - xs[v];
+		double dy = ys[u] - ys[v];
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * Return the smallest cost per unit of distance over all edges. Scaling
+	 * straight line distance by this value never overestimates the cost of a
+	 * path, so it is the largest scale that keeps an A* search exact. Returns 0
+	 * if some end of an edge has no position, since distance counts such a
+	 * vertex as 0 away from everything and any positive scale could then
+	 * overestimate, or if no edge has positive length.
+	 *
+	 * @return the smallest edge cost per unit of distance.
+	 */
+	public double minCostPerUnitDistance() {
+		double result = minCostPerUnitDistance;
+		if (Double.isNaN(result)) {
+			result = Double.POSITIVE_INFINITY;
+			boolean allPlaced = xs != null;
+			for (int v = 0; v < names.length && allPlaced; v++) {
+				for (int e = offsets[v]; e < offsets[v + 1] && allPlaced; e++) {
+					int w = targets[e];
+					allPlaced = !Double.isNaN(xs[v]) && !Double.isNaN(xs[w]);
+					double length = distance(v, w);
+					if (length > 0) {
+						result = Math.min(result, weights[e] / length);
+					}
+				}
+			}
+			if (!allPlaced || result == Double.POSITIVE_INFINITY) {
+				result = 0;
+			}
+			minCostPerUnitDistance = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Return the number of vertices in this graph.
+	 *
+	 * @return the number of vertices in this graph
+	 */
+	public int numVertices() {
+		return names.length;
+	}
+
+	/**
+	 * Return the number of edges in this graph.
+	 *
+	 * @return the number of edges in this graph
+	 */
+	public int numEdges() {
+		return targets.length;
+	}
+
+	/**
+	 * Check if a vertex with the given name is present in this graph.
+	 *
+	 * @param name The name of the vertex to check.
+	 * @return true if a vertex with name is present, false otherwise.
+	 */
+	public boolean containsVertex(String name) {
+		return ids.containsKey(name);
+	}
+
+	/**
+	 * Get the id of the vertex with the given name. <br>
+	 * pre: containsVertex(name) == true
+	 *
+	 * @param name The name of the vertex.
+	 * @return the id of the vertex, 0 to numVertices() - 1
+	 */
+	public int idOf(String name) {
+		Integer result = ids.get(name);
+		if (result == null) {
+			throw new NoSuchElementException("No Vertex named " + name + " exists in this Graph");
+		}
+		return result;
+	}
+
+	/**
+	 * Get the name of the vertex with the given id. <br>
+	 * pre: 0 <= id < numVertices()
+	 *
+	 * @param id The id of the vertex.
+	 * @return the name of the vertex.
+	 */
+	public String nameOf(int id) {
+		checkId(id);
+		return names[id];
+	}
+
+	// index of the first edge leaving v
+	int firstEdge(int v) {
+		return offsets[v];
+	}
+
+	// one past the index of the last edge leaving v
+	int endEdge(int v) {
+		return offsets[v + 1];
+	}
+
+	// the vertex edge e goes to
+	int target(int e) {
+		return targets[e];
+	}
+
+	// the cost of edge e
+	double weight(int e) {
+		return weights[e];
+	}
+
+	/**
+	 * Find the shortest paths from the vertex with id start to all other
+	 * vertices. This method does not change this graph, so any number of threads
+	 * may call it at once. <br>
+	 * pre: 0 <= start < numVertices()
+	 *
+	 * @param start    The id of the starting vertex.
+	 * @param weighted If weighted == true use dijkstra's algorithm otherwise use
+	 *                 the unweighted shortest path algorithm.
+	 * @return the shortest paths from start.
+	 */
+	public ShortestPathTree shortestPathTree(int start, boolean weighted) {
+		return shortestPathTree(start, weighted, null);
+	}
+
+	/**
+	 * Same as shortestPathTree(start, weighted) but each step of the search is
+	 * reported to listener, as in dijkstra(int, SearchState, SearchListener). <br>
+	 * pre: 0 <= start < numVertices()
+	 *
+	 * @param start    The id of the starting vertex.
+	 * @param weighted If weighted == true use dijkstra's algorithm otherwise use
+	 *                 the unweighted shortest path algorithm.
+	 * @param listener Told about each step, or null.
+	 * @return the shortest paths from start.
+	 */
+	public ShortestPathTree shortestPathTree(int start, boolean weighted, SearchListener listener) {
+		SearchState state = new SearchState(names.length);
+		if (weighted) {
+			dijkstra(start, state, listener);
+		} else {
+			findUnweightedShortestPath(start, state, listener);
+		}
+		// state is not used again so the tree can take its arrays
+		return new ShortestPathTree(this, start, weighted, state.cost, state.hops, state.prev);
+	}
+
+	/**
+	 * Find all unweighted shortest paths from the vertex with startName. <br>
+	 * pre: containsVertex(startName) == true
+	 *
+	 * @param startName The starting vertex.
+	 * @return the shortest paths from startName.
+	 */
+	public ShortestPathTree findUnweightedShortestPath(String startName) {
+		return findUnweightedShortestPath(idOf(startName));
+	}
+
+	/**
+	 * Find all unweighted shortest paths from the vertex with id start. The result
+	 * becomes the current start vertex for getNumEdgesFromStart,
+	 * getWeightedCostFromStart and findPath. <br>
+	 * pre: 0 <= start < numVertices()
+	 *
+	 * @param start The id of the starting vertex.
+	 * @return the shortest paths from start.
+	 */
+	public ShortestPathTree findUnweightedShortestPath(int start) {
+		currentTree = shortestPathTree(start, false);
+		return currentTree;
+	}
+
+	/**
+	 * Find all unweighted shortest paths from the vertex with id start and store
+	 * them in state. The search is direction optimizing: levels with a small
+	 * frontier are expanded top down along the edges leaving the frontier, and
+	 * levels with a large frontier bottom up, by having each unvisited vertex look
+	 * along its entering edges for a parent in the frontier. On graphs with a
+	 * small diameter this skips most of the edges to vertices already seen. The
+	 * costs and number of edges are the same either way, but when a vertex has
+	 * more than one shortest path the previous vertex may differ from a top down
+	 * search. <br>
+	 * pre: 0 <= start < numVertices(), state.capacity() == numVertices()
+	 *
+	 * @param start The id of the starting vertex.
+	 * @param state Where the results are stored.
+	 */
+	public void findUnweightedShortestPath(int start, SearchState state) {
+		findUnweightedShortestPath(start, state, true);
+	}
+
+	/**
+	 * Find all unweighted shortest paths from the vertex with id start and store
+	 * them in state. If directionOptimizing is false every level is expanded top
+	 * down, which is the plain breadth first search. <br>
+	 * pre: 0 <= start < numVertices(), state.capacity() == numVertices()
+	 *
+	 * @param start               The id of the starting vertex.
+	 * @param state               Where the results are stored.
+	 * @param directionOptimizing true to allow bottom up steps.
+	 */
+	public void findUnweightedShortestPath(int start, SearchState state, boolean directionOptimizing) {
+		SearchMetrics m = metrics;
+		if (m != null) {
+			tracedBreadthFirst(start, state, null, m);
+			return;
+		}
+		checkId(start);
+		checkState(state);
+		state.reset(start);
+		int n = names.length;
+		boolean mayGoBottomUp = directionOptimizing && n >= MIN_BOTTOM_UP_VERTICES;
+		// The queue holds every vertex found so far in order of distance, so
+		// the current level is always queue[levelStart] to queue[levelEnd - 1].
+		int[] queue = state.queue;
+		queue[0] = start;
+		int levelStart = 0;
+		int levelEnd = 1;
+		long frontierEdges = offsets[start + 1] - offsets[start];
+		long unvisitedEdges = targets.length - frontierEdges;
+		boolean bottomUp = false;
+		while (levelStart < levelEnd) {
+			if (mayGoBottomUp) {
+				// A frontier too small to stay bottom up never switches, so
+				// the search does not flip back and forth near its end.
+				boolean largeFrontier = levelEnd - levelStart >= n / TO_TOP_DOWN;
+				if (bottomUp) {
+					bottomUp = largeFrontier;
+				} else if (largeFrontier && frontierEdges > unvisitedEdges / TO_BOTTOM_UP) {
+					bottomUp = true;
+					markVisited(state, levelEnd);
+				}
+			}
+			int tail = bottomUp ? bottomUpStep(state, levelStart, levelEnd) : topDownStep(state, levelStart, levelEnd);
+			if (mayGoBottomUp) {
+				// the new level is the next frontier and is no longer unvisited
+				frontierEdges = 0;
+				for (int i = levelEnd; i < tail; i++) {
+					frontierEdges += offsets[queue[i] + 1] - offsets[queue[i]];
+				}
+				unvisitedEdges -= frontierEdges;
+			}
+			levelStart = levelEnd;
+			levelEnd = tail;
+		}
+	}
+
+	/**
+	 * Find all unweighted shortest paths from the vertex with id start, store
+	 * them in state and report each step to listener: every edge looked along,
+	 * every vertex found and every vertex taken from the queue. With a listener
+	 * the search is the plain top down breadth first search, so the steps
+	 * follow the order the vertices are reached in. If listener is null this is
+	 * findUnweightedShortestPath(start, state). <br>
+	 * pre: 0 <= start < numVertices(), state.capacity() == numVertices()
+	 *
+	 * @param start    The id of the starting vertex.
+	 * @param state    Where the results are stored.
+	 * @param listener Told about each step, or null.
+	 */
+	public void findUnweightedShortestPath(int start, SearchState state, SearchListener listener) {
+		if (listener == null) {
+			findUnweightedShortestPath(start, state);
+			return;
+		}
+		tracedBreadthFirst(start, state, listener, metrics);
+	}
+
+	// The top down breadth first search, telling listener about each step and
+	// adding its counts to m. Either may be null.
+	private void tracedBreadthFirst(int start, SearchState state, SearchListener listener, SearchMetrics m) {
+		checkId(start);
+		checkState(state);
+		long begin = m == null ? 0 : System.nanoTime();
+		state.reset(start);
+		double[] cost = state.cost;
+		int[] hops = state.hops;
+		int[] prev = state.prev;
+		int[] queue = state.queue;
+		queue[0] = start;
+		int head = 0;
+		int tail = 1;
+		long edges = 0;
+		int peak = 1;
+		if (listener != null) {
+			listener.relaxed(NO_VERTEX, start, 0);
+		}
+		while (head < tail) {
+			peak = Math.max(peak, tail - head);
+			int curr = queue[head++];
+			if (listener != null) {
+				listener.settled(curr);
+			}
+			double nextCost = cost[curr] + 1;
+			int nextHops = hops[curr] + 1;
+			edges += offsets[curr + 1] - offsets[curr];
+			for (int e = offsets[curr]; e < offsets[curr + 1]; e++) {
+				int neighbor = targets[e];
+				if (listener != null) {
+					listener.visited(curr, neighbor);
+				}
+				if (cost[neighbor] == INFINITY) {
+					cost[neighbor] = nextCost;
+					hops[neighbor] = nextHops;
+					prev[neighbor] = curr;
+					queue[tail++] = neighbor;
+					if (listener != null) {
+						listener.relaxed(curr, neighbor, nextCost);
+					}
+				}
+			}
+		}
+		if (listener != null) {
+			listener.finished();
+		}
+		if (m != null) {
+			// each vertex found is queued, found and settled once
+			m.recordSearch(false, start, System.nanoTime() - begin, tail, edges, tail - 1, tail, 0, peak);
+		}
+	}
+
+	// set the visited bits of queue[0] to queue[end - 1], the vertices found so
+	// far, before the first of a run of bottom up steps
+	private void markVisited(SearchState state, int end) {
+		long[] visited = state.visited;
+		Arrays.fill(visited, 0);
+		for (int i = 0; i < end; i++) {
+			int v = state.queue[i];
+			visited[v >>> 6] |= 1L << v;
+		}
+	}
+
+	// Expand the level queue[levelStart] to queue[levelEnd - 1] along the edges
+	// leaving it. Return one past the index of the last vertex added to the queue.
+	private int topDownStep(SearchState state, int levelStart, int levelEnd) {
+		double[] cost = state.cost;
+		int[] hops = state.hops;
+		int[] prev = state.prev;
+		int[] queue = state.queue;
+		int tail = levelEnd;
+		for (int i = levelStart; i < levelEnd; i++) {
+			int curr = queue[i];
+			double nextCost = cost[curr] + 1;
+			int nextHops = hops[curr] + 1;
+			for (int e = offsets[curr]; e < offsets[curr + 1]; e++) {
+				int neighbor = targets[e];
+				// Is this the first time I have seen this vertex?
+				if (cost[neighbor] == INFINITY) {
+					cost[neighbor] = nextCost;
+					hops[neighbor] = nextHops;
+					prev[neighbor] = curr;
+					queue[tail++] = neighbor;
+				}
+			}
+		}
+		return tail;
+	}
+
+	// Find the next level by checking the entering edges of every unvisited
+	// vertex for one that comes from the level queue[levelStart] to
+	// queue[levelEnd - 1]. Return one past the index of the last vertex added
+	// to the queue.
+	private int bottomUpStep(SearchState state, int levelStart, int levelEnd) {
+		CompactGraph rev = reverse();
+		int[] rOffsets = rev.offsets;
+		int[] rTargets = rev.targets;
+		double[] cost = state.cost;
+		int[] hops = state.hops;
+		int[] prev = state.prev;
+		int[] queue = state.queue;
+		long[] visited = state.visited;
+		long[] frontier = state.frontier;
+		for (int i = levelStart; i < levelEnd; i++) {
+			frontier[queue[i] >>> 6] |= 1L << queue[i];
+		}
+		double nextCost = cost[queue[levelStart]] + 1;
+		int nextHops = hops[queue[levelStart]] + 1;
+		int n = names.length;
+		int tail = levelEnd;
+		for (int word = 0; word < visited.length; word++) {
+			long unvisited = ~visited[word];
+			while (unvisited != 0) {
+				int v = (word << 6) + Long.numberOfTrailingZeros(unvisited);
+				unvisited &= unvisited - 1;
+				if (v >= n) {
+					break;
+				}
+				for (int e = rOffsets[v]; e < rOffsets[v + 1]; e++) {
+					int parent = rTargets[e];
+					if ((frontier[parent >>> 6] & (1L << parent)) != 0) {
+						cost[v] = nextCost;
+						hops[v] = nextHops;
+						prev[v] = parent;
+						queue[tail++] = v;
+						visited[word] |= 1L << v;
+						break;
+					}
+				}
+			}
+		}
+		for (int i = levelStart; i < levelEnd; i++) {
+			frontier[queue[i] >>> 6] = 0;
+		}
+		return tail;
+	}
+
+	/**
+	 * Find all weighted shortest paths from the vertex with startName using
+	 * Dijkstra's algorithm. <br>
+	 * pre: containsVertex(startName) == true
+	 *
+	 * @param startName The starting vertex.
+	 * @return the shortest paths from startName.
+	 */
+	public ShortestPathTree dijkstra(String startName) {
+		return dijkstra(idOf(startName));
+	}
+
+	/**
+	 * Find all weighted shortest paths from the vertex with id start using
+	 * Dijkstra's algorithm. The result becomes the current start vertex for
+	 * getNumEdgesFromStart, getWeightedCostFromStart and findPath. <br>
+	 * pre: 0 <= start < numVertices()
+	 *
+	 * @param start The id of the starting vertex.
+	 * @return the shortest paths from start.
+	 */
+	public ShortestPathTree dijkstra(int start) {
+		currentTree = shortestPathTree(start, true);
+		return currentTree;
+	}
+
+	/**
+	 * Find all weighted shortest paths from the vertex with id start using
+	 * Dijkstra's algorithm and store them in state. Where two paths to a vertex
+	 * cost the same the one with fewer edges is kept, so the number of edges is
+	 * the fewest of any shortest path, the same as DeltaStepping finds. <br>
+	 * pre: 0 <= start < numVertices(), state.capacity() == numVertices()
+	 *
+	 * @param start The id of the starting vertex.
+	 * @param state Where the results are stored.
+	 */
+	public void dijkstra(int start, SearchState state) {
+		SearchMetrics m = metrics;
+		if (m != null) {
+			tracedDijkstra(start, state, null, m);
+			return;
+		}
+		checkId(start);
+		checkState(state);
+		state.reset(start);
+		double[] cost = state.cost;
+		int[] hops = state.hops;
+		int[] prev = state.prev;
+		IndexedMinHeap heap = state.heap;
+		heap.clear();
+		heap.insert(start, 0);
+		while (!heap.isEmpty()) {
+			// Every vertex is removed once, when its cost is final
+			int curr = heap.removeMin();
+			double currCost = cost[curr];
+			int nextHops = hops[curr] + 1;
+			for (int e = offsets[curr]; e < offsets[curr + 1]; e++) {
+				int next = targets[e];
+				double newCost = currCost + weights[e];
+				if (newCost < cost[next]) {
+					cost[next] = newCost;
+					hops[next] = nextHops;
+					prev[next] = curr;
+					heap.insertOrDecrease(next, newCost);
+				} else if (newCost == cost[next] && nextHops < hops[next]) {
+					// Costs are > 0, so next is still in the heap and the
+					// edges leaving it have not been looked at yet.
+					hops[next] = nextHops;
+					prev[next] = curr;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Same as dijkstra(start, state) but each step is also reported to listener:
+	 * every edge looked along, every path improved and every vertex removed from
+	 * the heap. If listener is null this is dijkstra(start, state), and the
+	 * search pays nothing for the option. <br>
+	 * pre: 0 <= start < numVertices(), state.capacity() == numVertices()
+	 *
+	 * @param start    The id of the starting vertex.
+	 * @param state    Where the results are stored.
+	 * @param listener Told about each step, or null.
+	 */
+	public void dijkstra(int start, SearchState state, SearchListener listener) {
+		if (listener == null) {
+			dijkstra(start, state);
+			return;
+		}
+		tracedDijkstra(start, state, listener, metrics);
+	}
+
+	// dijkstra(start, state), telling listener about each step and adding its
+	// counts to m. Either may be null.
+	private void tracedDijkstra(int start, SearchState state, SearchListener listener, SearchMetrics m) {
+		checkId(start);
+		checkState(state);
+		long begin = m == null ? 0 : System.nanoTime();
+		state.reset(start);
+		double[] cost = state.cost;
+		int[] hops = state.hops;
+		int[] prev = state.prev;
+		IndexedMinHeap heap = state.heap;
+		heap.clear();
+		heap.insert(start, 0);
+		long settled = 0;
+		long edges = 0;
+		long improved = 0;
+		long inserts = 1;
+		long decreases = 0;
+		int peak = 1;
+		if (listener != null) {
+			listener.relaxed(NO_VERTEX, start, 0);
+		}
+		while (!heap.isEmpty()) {
+			int curr = heap.removeMin();
+			settled++;
+			if (listener != null) {
+				listener.settled(curr);
+			}
+			double currCost = cost[curr];
+			int nextHops = hops[curr] + 1;
+			edges += offsets[curr + 1] - offsets[curr];
+			for (int e = offsets[curr]; e < offsets[curr + 1]; e++) {
+				int next = targets[e];
+				double newCost = currCost + weights[e];
+				if (listener != null) {
+					listener.visited(curr, next);
+				}
+				if (newCost < cost[next]) {
+					// a vertex with a finite cost that can still improve is in
+					// the heap
+					if (cost[next] == INFINITY) {
+						inserts++;
+					} else {
+						decreases++;
+					}
+					improved++;
+					cost[next] = newCost;
+					hops[next] = nextHops;
+					prev[next] = curr;
+					heap.insertOrDecrease(next, newCost);
+					peak = Math.max(peak, heap.size());
+					if (listener != null) {
+						listener.relaxed(curr, next, newCost);
+					}
+				} else if (newCost == cost[next] && nextHops < hops[next]) {
+					improved++;
+					hops[next] = nextHops;
+					prev[next] = curr;
+					if (listener != null) {
+						listener.relaxed(curr, next, newCost);
+					}
+				}
+			}
+		}
+		if (listener != null) {
+			listener.finished();
+		}
+		if (m != null) {
+			m.recordSearch(true, start, System.nanoTime() - begin, settled, edges, improved, inserts, decreases, peak);
+		}
+	}
+
+	/**
+	 * Get the number of edges of the shortest path from the current start vertex to
+	 * the vertex with id dest. <br>
+	 * pre: findUnweightedShortestPath or dijkstra called.
+	 *
+	 * @param dest the id of the destination vertex.
+	 * @return the number of edges from the current start vertex to the
+	 *         destination vertex. returns -1 if no path exists.
+	 */
+	public int getNumEdgesFromStart(int dest) {
+		checkSearched();
+		checkId(dest);
+		return currentTree.getNumEdges(dest);
+	}
+
+	/**
+	 * Get the total weighted cost of the shortest path from the current start
+	 * vertex to the vertex with id dest. <br>
+	 * pre: findUnweightedShortestPath or dijkstra called.
+	 *
+	 * @param dest the id of the destination vertex.
+	 * @return the total cost of the shortest path from the current start vertex to
+	 *         the destination vertex. returns -1 if no path exists.
+	 */
+	public double getWeightedCostFromStart(int dest) {
+		checkSearched();
+		checkId(dest);
+		return currentTree.getWeightedCost(dest);
+	}
+
+	/**
+	 * Return a List containing the names of the vertices on the path from the
+	 * current start vertex to the vertex with id dest. If no path exists an empty
+	 * List is returned. <br>
+	 * pre: findUnweightedShortestPath or dijkstra called.
+	 *
+	 * @param dest the id of the destination vertex.
+	 * @return the path from the current start vertex to dest.
+	 */
+	public List<String> findPath(int dest) {
+		checkSearched();
+		checkId(dest);
+		return currentTree.findPath(dest);
+	}
+
+	/**
+	 * Find all shortest paths between all pairs of vertices in this graph and
+	 * record the same per vertex statistics and longest shortest path as
+	 * Graph.findAllPaths. The unweighted version runs one breadth first search
+	 * for 64 sources at a time, keeping a bit per source for every vertex, so each
+	 * level walks the edges once for all 64. The weighted version uses the blocked
+	 * Floyd-Warshall algorithm of DenseAllPaths instead of a Dijkstra search from
+	 * each vertex when the graph is dense enough for that to be faster, which is
+	 * when most pairs of vertices have an edge, and the matrices fit in memory.
+	 * Both keep the path with the fewest edges when two paths cost the same, so
+	 * when edge costs add up without rounding, such as whole numbers, the results
+	 * are the same either way.
+	 *
+	 * @param weighted If weighted == true use dijkstra's algorithm otherwise use
+	 *                 the unweighted shortest path algorithm.
+	 */
+	public void findAllPaths(boolean weighted) {
+		SearchMetrics m = metrics;
+		long begin = m == null ? 0 : System.nanoTime();
+		prepForAllPaths();
+		boolean dense = weighted && DenseAllPaths.isBetterFor(this);
+		if (dense) {
+			useDense(new DenseAllPaths(this, true, null));
+		} else {
+			AllPathsTask task = new AllPathsTask(weighted, 0, names.length, m);
+			task.call();
+			longest = task.longest;
+			longestCost = task.longestCost;
+			allPathsFound = true;
+		}
+		if (m != null) {
+			m.recordAllPaths(weighted, dense, names.length, System.nanoTime() - begin);
+		}
+	}
+
+	/**
+	 * Same as findAllPaths(boolean) but the single source searches are spread over
+	 * the threads of the common ForkJoinPool.
+	 *
+	 * @param weighted If weighted == true use dijkstra's algorithm otherwise use
+	 *                 the unweighted shortest path algorithm.
+	 */
+	public void findAllPathsParallel(boolean weighted) {
+		findAllPaths(weighted, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Same as findAllPaths(boolean) but the single source searches are spread over
+	 * the threads of executor. Each task gets its own range of sources and its own
+	 * SearchState. The results are the same as the sequential version, including
+	 * which longest path is picked when there are ties. <br>
+	 * pre: executor != null
+	 *
+	 * @param weighted If weighted == true use dijkstra's algorithm otherwise use
+	 *                 the unweighted shortest path algorithm.
+	 * @param executor Runs the searches.
+	 */
+	public void findAllPaths(boolean weighted, ExecutorService executor) {
+		if (executor == null) {
+			throw new IllegalArgumentException("Violation of precondition. " + "executor may not be null.");
+		}
+		SearchMetrics m = metrics;
+		long begin = m == null ? 0 : System.nanoTime();
+		prepForAllPaths();
+		if (weighted && DenseAllPaths.isBetterFor(this)) {
+			useDense(new DenseAllPaths(this, true, executor));
+			if (m != null) {
+				m.recordAllPaths(weighted, true, names.length, System.nanoTime() - begin);
+			}
+			return;
+		}
+		List<AllPathsTask> tasks = new ArrayList<>();
+		for (int first = 0; first < names.length; first += SOURCES_PER_TASK) {
+			int last = Math.min(names.length, first + SOURCES_PER_TASK);
+			tasks.add(new AllPathsTask(weighted, first, last, m));
+		}
+		try {
+			for (Future<AllPathsTask> f : executor.invokeAll(tasks)) {
+				// Tasks are in source order, so only replacing on a strictly
+				// longer path picks the same path as the sequential version.
+				AllPathsTask task = f.get();
+				if (longestCost < task.longestCost) {
+					longestCost = task.longestCost;
+					longest = task.longest;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while finding all paths.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+		allPathsFound = true;
+		if (m != null) {
+			m.recordAllPaths(weighted, false, names.length, System.nanoTime() - begin);
+		}
+	}
+
+	// Fill in the results of findAllPaths from the matrices of dense. The
+	// totals, farthest vertices and longest path are picked exactly as
+	// AllPathsTask picks them, and the one longest path is found with
+	// dijkstra so it is the same path the searches would give.
+	private void useDense(DenseAllPaths dense) {
+		int n = names.length;
+		double[] cost = dense.costs();
+		int[] hops = dense.hopCounts();
+		int longestSource = NO_VERTEX;
+		int longestDest = NO_VERTEX;
+		for (int source = 0; source < n; source++) {
+			int row = source * n;
+			int farthest = NO_VERTEX;
+			for (int dest = 0; dest < n; dest++) {
+				if (dest != source && cost[row + dest] != INFINITY) {
+					numVertexConnected[source]++;
+					totalUnweightedPathLength[source] += hops[row + dest];
+					totalWeightedPathLength[source] += cost[row + dest];
+					if (farthest == NO_VERTEX || cost[row + farthest] < cost[row + dest]) {
+						farthest = dest;
+					}
+				}
+			}
+			if (farthest != NO_VERTEX && longestCost < cost[row + farthest]) {
+				longestCost = cost[row + farthest];
+				longestSource = source;
+				longestDest = farthest;
+			}
+		}
+		if (longestSource != NO_VERTEX) {
+			SearchState state = new SearchState(n);
+			dijkstra(longestSource, state);
+			longest = state.pathTo(longestDest);
+		}
+		allPathsFound = true;
+	}
+
+	// reset the results of findAllPaths
+	private void prepForAllPaths() {
+		allPathsFound = false;
+		int n = names.length;
+		numVertexConnected = new int[n];
+		totalUnweightedPathLength = new double[n];
+		totalWeightedPathLength = new double[n];
+		longest = new int[0];
+		longestCost = 0;
+	}
+
+	// Finds the paths from sources first to last - 1. Each source only writes
+	// to its own slot of the per vertex totals so tasks never share state.
+	// The longest path of the range is kept in the task to be merged after.
+	private class AllPathsTask implements Callable<AllPathsTask> {
+
+		private final boolean weighted;
+		private final int first;
+		private final int last;
+		// times each source when not null
+		private final SearchMetrics metrics;
+		private SearchState state;
+		private int[] longest;
+		private double longestCost;
+
+		// work space for the multi source unweighted search. bit i of seen[v]
+		// and visit[v] is for source batchFirst + i
+		private long[] seen;
+		private long[] visit;
+		private long[] visitNext;
+
+		private AllPathsTask(boolean weighted, int first, int last, SearchMetrics metrics) {
+			this.weighted = weighted;
+			this.first = first;
+			this.last = last;
+			this.metrics = metrics;
+			longest = new int[0];
+		}
+
+		public AllPathsTask call() {
+			state = new SearchState(names.length);
+			if (weighted) {
+				for (int source = first; source < last; source++) {
+					long begin = metrics == null ? 0 : System.nanoTime();
+					dijkstra(source, state);
+					addTotals(source);
+					if (metrics != null) {
+						metrics.recordSource(System.nanoTime() - begin);
+					}
+				}
+			} else {
+				seen = new long[names.length];
+				visit = new long[names.length];
+				visitNext = new long[names.length];
+				for (int batchFirst = first; batchFirst < last; batchFirst += Long.SIZE) {
+					int batchLast = Math.min(last, batchFirst + Long.SIZE);
+					long begin = metrics == null ? 0 : System.nanoTime();
+					multiSourceSearch(batchFirst, batchLast);
+					if (metrics != null) {
+						// the sources of a batch share its time equally
+						long share = (System.nanoTime() - begin) / (batchLast - batchFirst);
+						for (int source = batchFirst; source < batchLast; source++) {
+							metrics.recordSource(share);
+						}
+					}
+				}
+			}
+			// the work space is not needed once the range is done
+			state = null;
+			seen = null;
+			visit = null;
+			visitNext = null;
+			return this;
+		}
+
+		// add the results in state for source to the totals
+		private void addTotals(int source) {
+			double[] cost = state.cost;
+			int[] hops = state.hops;
+			int farthest = NO_VERTEX;
+			for (int dest = 0; dest < names.length; dest++) {
+				if (dest != source && cost[dest] != INFINITY) {
+					numVertexConnected[source]++;
+					totalUnweightedPathLength[source] += hops[dest];
+					totalWeightedPathLength[source] += cost[dest];
+					if (farthest == NO_VERTEX || cost[farthest] < cost[dest]) {
+						farthest = dest;
+					}
+				}
+			}
+			// only build the path when it beats the longest found so far
+			if (farthest != NO_VERTEX && longestCost < cost[farthest]) {
+				longestCost = cost[farthest];
+				longest = state.pathTo(farthest);
+			}
+		}
+
+		// Breadth first search from the up to 64 sources batchFirst to
+		// batchLast - 1 at once, so each level walks the edges one time for all
+		// of them instead of once per source. The totals for each source are
+		// added as its vertices are reached. The longest path is picked the same
+		// way as addTotals picks it, and only that one path is found with a
+		// single source search at the end.
+		private void multiSourceSearch(int batchFirst, int batchLast) {
+			int n = names.length;
+			int batchSize = batchLast - batchFirst;
+			Arrays.fill(seen, 0);
+			Arrays.fill(visit, 0);
+			Arrays.fill(visitNext, 0);
+			for (int i = 0; i < batchSize; i++) {
+				seen[batchFirst + i] |= 1L << i;
+				visit[batchFirst + i] |= 1L << i;
+			}
+			int[] farthestLevel = new int[batchSize];
+			int[] farthest = new int[batchSize];
+			Arrays.fill(farthest, NO_VERTEX);
+			boolean found = true;
+			for (int level = 1; found; level++) {
+				for (int v = 0; v < n; v++) {
+					long bits = visit[v];
+					if (bits != 0) {
+						visit[v] = 0;
+						for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+							visitNext[targets[e]] |= bits;
+						}
+					}
+				}
+				found = false;
+				for (int v = 0; v < n; v++) {
+					long reached = visitNext[v] & ~seen[v];
+					visitNext[v] = 0;
+					if (reached != 0) {
+						found = true;
+						seen[v] |= reached;
+						visit[v] = reached;
+						// v is the first vertex by id at this level for these
+						// sources, which matches the farthest addTotals picks
+						for (long rest = reached; rest != 0; rest &= rest - 1) {
+							int i = Long.numberOfTrailingZeros(rest);
+							numVertexConnected[batchFirst + i]++;
+							totalUnweightedPathLength[batchFirst + i] += level;
+							totalWeightedPathLength[batchFirst + i] += level;
+							if (farthestLevel[i] < level) {
+								farthestLevel[i] = level;
+								farthest[i] = v;
+							}
+						}
+					}
+				}
+			}
+			int best = NO_VERTEX;
+			for (int i = 0; i < batchSize; i++) {
+				if (farthest[i] != NO_VERTEX && longestCost < farthestLevel[i]
+						&& (best == NO_VERTEX || farthestLevel[best] < farthestLevel[i])) {
+					best = i;
+				}
+			}
+			if (best != NO_VERTEX) {
+				findUnweightedShortestPath(batchFirst + best, state);
+				longestCost = farthestLevel[best];
+				longest = state.pathTo(farthest[best]);
+			}
+		}
+	}
+
+	// totals from the last call to findAllPaths, used by Graph to copy the
+	// results back to its vertices
+	int getNumVertexConnected(int v) {
+		return numVertexConnected[v];
+	}
+
+	double getTotalUnweightedPathLength(int v) {
+		return totalUnweightedPathLength[v];
+	}
+
+	double getTotalWeightedPathLength(int v) {
+		return totalWeightedPathLength[v];
+	}
+
+	// ids of the vertices on the longest shortest path
+	int[] getLongestPathIds() {
+		return longest.clone();
+	}
+
+	/**
+	 * Get all path statistics for all vertices in this graph that are connected to
+	 * one or more other vertices. <br>
+	 * pre: findAllPaths has been called.
+	 *
+	 * @return A TreeSet with AllPathsInfo for the vertices in this graph.
+	 */
+	public TreeSet<AllPathsInfo> getAllPaths() {
+		checkAllPathsFound();
+		TreeSet<AllPathsInfo> result = new TreeSet<>();
+		for (int v = 0; v < names.length; v++) {
+			if (numVertexConnected[v] > 0) {
+				result.add(new AllPathsInfo(names[v], numVertexConnected[v], totalWeightedPathLength[v]));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Return the number of edges in the longest shortest path in this graph. <br>
+	 * pre: findAllPaths has been called.
+	 *
+	 * @return the diameter of this graph in terms of number of edges.
+	 */
+	public int getDiameter() {
+		checkAllPathsFound();
+		return longest.length - 1;
+	}
+
+	/**
+	 * Return the cost of the longest shortest path in this graph. <br>
+	 * pre: findAllPaths has been called.
+	 *
+	 * @return the diameter of this graph.
+	 */
+	public double costOfLongestShortestPath() {
+		checkAllPathsFound();
+		return longestCost;
+	}
+
+	/**
+	 * Return a path equal to the diameter of this graph, in the same format as
+	 * Graph.getLongestPath. <br>
+	 * pre: findAllPaths has been called.
+	 *
+	 * @return the names of the vertices in a path equal to the diameter.
+	 */
+	public String getLongestPath() {
+		checkAllPathsFound();
+		StringBuilder result = new StringBuilder("[");
+		for (int i = 0; i < longest.length; i++) {
+			if (i > 0) {
+				result.append(", ");
+			}
+			result.append(names[longest[i]]);
+		}
+		result.append("]");
+		if (longest.length > 0) {
+			result.append(" cost: ");
+			result.append(longestCost);
+		}
+		return result.toString();
+	}
+
+	private void checkId(int id) {
+		if (id < 0 || id >= names.length) {
+			throw new NoSuchElementException("No Vertex with id " + id + " exists in this Graph");
+		}
+	}
+
+	private void checkState(SearchState state) {
+		if (state == null || state.capacity() != names.length) {
+			throw new IllegalArgumentException("Violation of precondition. "
+					+ "state must be sized for the number of vertices in this graph.");
+		}
+	}
+
+	private void checkPosition(int id) {
+		if (!hasPosition(id)) {
+			throw new IllegalStateException("Vertex " + names[id] + " has no position.");
+		}
+	}
+
+	private void checkSearched() {
+		if (currentTree == null) {
+			throw new IllegalStateException(
+					"method findUnweigthedShortesPath or dijkstra must be " + "called before calling this method.");
+		}
+	}
+
+	private void checkAllPathsFound() {
+		if (!allPathsFound) {
+			throw new IllegalStateException("The method findAllPaths must be called before calling this method. ");
+		}
+	}
+}
@@ -0,0 +1,362 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Finds the weighted shortest paths from one vertex of a CompactGraph with the
+ * delta-stepping algorithm of Meyer and Sanders, spreading the edge relaxations
+ * over the threads of an ExecutorService.
+ *
+ * Vertices wait in buckets of width delta by the cost of the best path to them
+ * found so far. The lowest bucket is emptied in phases. Each phase takes every
+ * vertex in the bucket at once and relaxes their light edges, those costing at
+ * most delta, which may put vertices back in the same bucket for the next
+ * phase. Once the bucket stays empty the heavy edges of all the vertices it held
+ * are relaxed, once each. The vertices of a phase are split over the threads,
+ * which update a vertex while holding a lock for that vertex alone. A small
+ * delta wastes less work on paths that turn out not to be shortest, a large one
+ * gives fewer phases with more vertices to share out. Any delta gives the same
+ * result.
+ *
+ * The costs and numbers of edges found are exactly those of
+ * CompactGraph.dijkstra: where two paths to a vertex cost the same the one with
+ * fewer edges is kept. Where more than one of those also has the fewest edges
+ * the previous vertex may differ.
+ *
+ * A DeltaStepping is not thread safe; each thread needs its own, though they
+ * may share an executor.
+ */
+public class DeltaStepping {
+
+	// queued[v] when v is in no bucket
+	private static final long NOT_QUEUED = -1;
+
+	// Phases with fewer vertices than this are run on the calling thread,
+	// where handing them to the executor would cost more than it saves.
+	private static final int MIN_PARALLEL = 512;
+
+	// Each thread of the executor gets this many tasks per phase, so a thread
+	// that draws vertices with many edges does not hold up the others.
+	private static final int TASKS_PER_THREAD = 4;
+
+	// At most this many buckets. A smaller delta is raised to fit, so a tiny
+	// delta does not need a huge array of them.
+	private static final int MAX_BUCKETS = 1 << 16;
+
+	private final CompactGraph graph;
+	private final ExecutorService executor;
+	private final double maxWeight;
+
+	// locks[v] is 1 while a thread is updating the path to v
+	private final AtomicIntegerArray locks;
+
+	// the bucket v waits in, or NOT_QUEUED. Buckets may also hold stale
+	// entries for vertices that have since moved to a lower bucket; those are
+	// skipped.
+	private final long[] queued;
+
+	// the vertices of the current phase with the cost and number of edges of
+	// their paths when the phase started
+	private final IntList phase = new IntList();
+	private final double[] phaseCost;
+	private final int[] phaseHops;
+
+	// the vertices taken from the current bucket whose heavy edges have not
+	// been relaxed yet
+	private final IntList settled = new IntList();
+	private final boolean[] isSettled;
+
+	private final List<Relaxer> relaxers = new ArrayList<>();
+
+	// the current search
+	private SearchState state;
+	private double delta;
+	private IntList[] buckets = new IntList[0];
+	private int numQueued;
+
+	/**
+	 * Create a delta-stepping search for the given graph. <br>
+	 * pre: graph != null
+	 *
+	 * @param graph    The graph to search.
+	 * @param executor Runs the relaxations, or null to run them all on the
+	 *                 calling thread.
+	 */
+	public DeltaStepping(CompactGraph graph, ExecutorService executor) {
+		if (graph == null) {
+			throw new IllegalArgumentException("Violation of precondition. " + "graph may not be null.");
+		}
+		this.graph = graph;
+		this.executor = executor;
+		int n = graph.numVertices();
+		double max = 0;
+		for (int e = 0; e < graph.numEdges(); e++) {
+			max = Math.max(max, graph.weight(e));
+		}
+		maxWeight = max;
+		locks = new AtomicIntegerArray(n);
+		queued = new long[n];
+		phaseCost = new double[n];
+		phaseHops = new int[n];
+		isSettled = new boolean[n];
+		int numRelaxers = executor == null ? 1 : TASKS_PER_THREAD * Runtime.getRuntime().availableProcessors();
+		for (int i = 0; i < numRelaxers; i++) {
+			relaxers.add(new Relaxer());
+		}
+	}
+
+	/**
+	 * Return a bucket width that works well for graph: the average cost of its
+	 * edges. On grids, random sparse graphs and power law graphs of a few hundred
+	 * thousand vertices this ran within a third of the time of dijkstra on one
+	 * thread, with phases large enough to share out once the search has spread. <br>
+	 * pre: graph != null
+	 *
+	 * @param graph The graph to be searched.
+	 * @return a bucket width for searching graph.
+	 */
+	public static double suggestDelta(CompactGraph graph) {
+		if (graph == null) {
+			throw new IllegalArgumentException("Violation of precondition. " + "graph may not be null.");
+		}
+		double total = 0;
+		for (int e = 0; e < graph.numEdges(); e++) {
+			total += graph.weight(e);
+		}
+		return graph.numEdges() == 0 ? 1 : total / graph.numEdges();
+	}
+
+	/**
+	 * Return the graph this object searches.
+	 *
+	 * @return the graph this object searches.
+	 */
+	public CompactGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Find all weighted shortest paths from the vertex with id start. <br>
+	 * pre: 0 <= start < getGraph().numVertices(), delta > 0
+	 *
+	 * @param start The id of the starting vertex.
+	 * @param delta The width of the buckets.
+	 * @return the shortest paths from start.
+	 */
+	public ShortestPathTree shortestPathTree(int start, double delta) {
+		SearchState result = new SearchState(graph.numVertices());
+		search(start, delta, result);
+		// result is not used again so the tree can take its arrays
+		return new ShortestPathTree(graph, start, true, result.cost, result.hops, result.prev);
+	}
+
+	/**
+	 * Find all weighted shortest paths from the vertex with id start and store
+	 * them in state. <br>
+	 * pre: 0 <= start < getGraph().numVertices(), delta > 0,
+	 * state.capacity() == getGraph().numVertices()
+	 *
+	 * @param start The id of the starting vertex.
+	 * @param delta The width of the buckets.
+	 * @param state Where the results are stored.
+	 */
+	public void search(int start, double delta, SearchState state) {
+		if (start < 0 || start >= graph.numVertices()) {
+			throw new NoSuchElementException("No Vertex with id " + start + " exists in this Graph");
+		}
+		if (!(delta > 0)) {
+			throw new IllegalArgumentException("Violation of precondition. " + "delta must be > 0. " + delta);
+		}
+		if (state == null || state.capacity() != graph.numVertices()) {
+			throw new IllegalArgumentException("Violation of precondition. "
+					+ "state must be sized for the number of vertices in this graph.");
+		}
+		this.state = state;
+		this.delta = Math.max(delta, maxWeight / (MAX_BUCKETS - 3));
+		// A vertex in bucket b only queues vertices in buckets b to
+		// b + maxWeight / delta + 1, so the buckets can be reused in a cycle.
+		int numBuckets = (int) (maxWeight / this.delta) + 3;
+		if (buckets.length != numBuckets) {
+			buckets = new IntList[numBuckets];
+			for (int i = 0; i < numBuckets; i++) {
+				buckets[i] = new IntList();
+			}
+		}
+		state.reset(start);
+		Arrays.fill(queued, NOT_QUEUED);
+		queued[start] = 0;
+		buckets[0].add(start);
+		numQueued = 1;
+		long b = 0;
+		while (numQueued > 0) {
+			IntList bucket = buckets[(int) (b % numBuckets)];
+			if (bucket.size == 0) {
+				b++;
+			} else {
+				while (bucket.size > 0) {
+					takePhase(bucket, b);
+					relax(false);
+				}
+				// Rounding can put a heavy edge's target in this bucket, in
+				// which case the loop comes back to it.
+				takeSettled();
+				relax(true);
+			}
+		}
+		this.state = null;
+	}
+
+	// Move the vertices still waiting in bucket b into the phase.
+	private void takePhase(IntList bucket, long b) {
+		phase.size = 0;
+		for (int i = 0; i < bucket.size; i++) {
+			int v = bucket.items[i];
+			if (queued[v] == b) {
+				queued[v] = NOT_QUEUED;
+				addToPhase(v);
+				if (!isSettled[v]) {
+					isSettled[v] = true;
+					settled.add(v);
+				}
+			}
+		}
+		numQueued -= bucket.size;
+		bucket.size = 0;
+	}
+
+	private void takeSettled() {
+		phase.size = 0;
+		for (int i = 0; i < settled.size; i++) {
+			int v = settled.items[i];
+			isSettled[v] = false;
+			addToPhase(v);
+		}
+		settled.size = 0;
+	}
+
+	private void addToPhase(int v) {
+		phaseCost[phase.size] = state.cost[v];
+		phaseHops[phase.size] = state.hops[v];
+		phase.add(v);
+	}
+
+	// Relax the light or heavy edges of the vertices in the phase and queue
+	// the vertices whose paths improved.
+	private void relax(boolean heavy) {
+		int size = phase.size;
+		if (executor == null || size < MIN_PARALLEL) {
+			Relaxer r = relaxers.get(0);
+			r.set(0, size, heavy);
+			r.call();
+			queue(r);
+			return;
+		}
+		int numTasks = Math.min(relaxers.size(), size / (MIN_PARALLEL / TASKS_PER_THREAD));
+		for (int i = 0; i < numTasks; i++) {
+			relaxers.get(i).set((int) ((long) size * i / numTasks), (int) ((long) size * (i + 1) / numTasks), heavy);
+		}
+		try {
+			for (Future<Relaxer> f : executor.invokeAll(relaxers.subList(0, numTasks))) {
+				queue(f.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while finding shortest paths.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	// Put the vertices r improved in the buckets it picked for them.
+	private void queue(Relaxer r) {
+		for (int i = 0; i < r.improved.size; i++) {
+			int v = r.improved.items[i];
+			buckets[(int) (queued[v] % buckets.length)].add(v);
+		}
+		numQueued += r.improved.size;
+		r.improved.size = 0;
+	}
+
+	// Relaxes the edges of part of the vertices of a phase.
+	private class Relaxer implements Callable<Relaxer> {
+
+		private int first;
+		private int last;
+		private boolean heavy;
+
+		// the vertices whose bucket this task changed
+		private final IntList improved = new IntList();
+
+		private void set(int first, int last, boolean heavy) {
+			this.first = first;
+			this.last = last;
+			this.heavy = heavy;
+		}
+
+		public Relaxer call() {
+			double[] cost = state.cost;
+			int[] vertices = phase.items;
+			for (int i = first; i < last; i++) {
+				int u = vertices[i];
+				double uCost = phaseCost[i];
+				int nextHops = phaseHops[i] + 1;
+				for (int e = graph.firstEdge(u); e < graph.endEdge(u); e++) {
+					double w = graph.weight(e);
+					if ((w > delta) == heavy) {
+						int v = graph.target(e);
+						double newCost = uCost + w;
+						// Costs only go down, so if this read is out of date
+						// the path is no better than the current one either.
+						if (newCost <= cost[v]) {
+							update(v, newCost, nextHops, u);
+						}
+					}
+				}
+			}
+			return this;
+		}
+
+		// Keep the path to v through u if it is better than the current one.
+		private void update(int v, double newCost, int newHops, int u) {
+			while (!locks.compareAndSet(v, 0, 1)) {
+				Thread.onSpinWait();
+			}
+			double[] cost = state.cost;
+			int[] hops = state.hops;
+			if (newCost < cost[v] || (newCost == cost[v] && newHops < hops[v])) {
+				cost[v] = newCost;
+				hops[v] = newHops;
+				state.prev[v] = u;
+				long b = (long) (newCost / delta);
+				if (queued[v] != b) {
+					queued[v] = b;
+					improved.add(v);
+				}
+			}
+			locks.setRelease(v, 0);
+		}
+	}
+
+	// A growable list of ints that is cleared by setting size to 0.
+	private static class IntList {
+
+		private int[] items = new int[16];
+		private int size;
+
+		private void add(int v) {
+			if (size == items.length) {
+				items = Arrays.copyOf(items, size * 2);
+			}
+			items[size++] = v;
+		}
+	}
+}
@@ -0,0 +1,291 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * The shortest paths between all pairs of vertices of a CompactGraph, found
+ * with the Floyd-Warshall algorithm. The cost, number of edges and first step of
+ * every path are kept in flat n by n arrays, so this uses about 16 bytes per pair
+ * of vertices and is meant for graphs of a few thousand vertices. On graphs where
+ * nearly every pair of vertices has an edge it is faster than a Dijkstra search
+ * from every vertex since its inner loop is a plain pass over arrays with no
+ * heap. It also keeps every path, which the searches do not.
+ *
+ * The matrix is split into square tiles that fit in cache, and the tiles are
+ * updated in the three phase order of the blocked Floyd-Warshall algorithm.
+ * Tiles that do not depend on each other can be updated on the threads of an
+ * ExecutorService. When two paths cost the same the one with fewer edges is kept.
+ */
+public class DenseAllPaths {
+
+	private static final double INFINITY = SearchState.INFINITY;
+
+	private static final int NO_VERTEX = SearchState.NO_VERTEX;
+
+	// the tiles are TILE by TILE entries. 64 * 64 costs are 32 KB, so the
+	// three tiles an update reads fit in a typical L2 cache.
+	private static final int TILE = 64;
+
+	// Floyd-Warshall does about V * V * V steps and a Dijkstra search from
+	// every vertex about V * E * log V. Measured against CompactGraph.dijkstra
+	// on random graphs of 300 to 1500 vertices the two cross where E * log V
+	// is about 8 * V * V, when around 85% of all possible edges are present.
+	private static final int CROSSOVER = 8;
+
+	// only use this engine automatically if its arrays take at most this
+	// fraction of the maximum heap
+	private static final int HEAP_FRACTION = 4;
+
+	private final CompactGraph graph;
+	private final int n;
+
+	// cost[i * n + j], hops[i * n + j] and next[i * n + j] describe the shortest
+	// path from i to j. next is the vertex after i on the path.
+	private final double[] cost;
+	private final int[] hops;
+	private final int[] next;
+
+	/**
+	 * Find the shortest paths between all pairs of vertices of graph. <br>
+	 * pre: graph != null, graph.numVertices() <= 46340
+	 *
+	 * @param graph    The graph to search.
+	 * @param weighted If weighted == true use edge costs, otherwise every edge
+	 *                 costs 1.
+	 * @param executor Runs the tile updates, or null to update them all on the
+	 *                 calling thread.
+	 */
+	public DenseAllPaths(CompactGraph graph, boolean weighted, ExecutorService executor) {
+		if (graph == null) {
+			throw new IllegalArgumentException("Violation of precondition. " + "graph may not be null.");
+		}
+		if ((long) graph.numVertices() * graph.numVertices() > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException(
+					"Violation of precondition. " + "graph is too large. " + graph.numVertices());
+		}
+		this.graph = graph;
+		n = graph.numVertices();
+		cost = new double[n * n];
+		hops = new int[n * n];
+		next = new int[n * n];
+		Arrays.fill(cost, INFINITY);
+		Arrays.fill(next, NO_VERTEX);
+		for (int i = 0; i < n; i++) {
+			cost[i * n + i] = 0;
+			next[i * n + i] = i;
+			for (int e = graph.firstEdge(i); e < graph.endEdge(i); e++) {
+				int j = graph.target(e);
+				double c = weighted ? graph.weight(e) : 1;
+				if (i != j && c < cost[i * n + j]) {
+					cost[i * n + j] = c;
+					hops[i * n + j] = 1;
+					next[i * n + j] = j;
+				}
+			}
+		}
+		solve(executor);
+	}
+
+	// Return true if this engine should be faster than a Dijkstra search from
+	// every vertex of graph and its arrays fit comfortably in memory.
+	static boolean isBetterFor(CompactGraph graph) {
+		long v = graph.numVertices();
+		long bytes = 16 * v * v;
+		if (v < TILE || bytes > Runtime.getRuntime().maxMemory() / HEAP_FRACTION) {
+			return false;
+		}
+		double logV = Math.log(v) / Math.log(2);
+		return graph.numEdges() * logV >= CROSSOVER * v * v;
+	}
+
+	/**
+	 * Return the graph these paths were found on.
+	 *
+	 * @return the graph these paths were found on.
+	 */
+	public CompactGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Return the cost of the shortest path from source to dest, or -1 if there is
+	 * none. <br>
+	 * pre: 0 <= source, dest < getGraph().numVertices()
+	 *
+	 * @param source the id of the first vertex.
+	 * @param dest   the id of the last vertex.
+	 * @return the cost of the shortest path.
+	 */
+	public double getCost(int source, int dest) {
+		int index = index(source, dest);
+		return cost[index] == INFINITY ? -1 : cost[index];
+	}
+
+	/**
+	 * Return the number of edges in the shortest path from source to dest, or -1
+	 * if there is none. <br>
+	 * pre: 0 <= source, dest < getGraph().numVertices()
+	 *
+	 * @param source the id of the first vertex.
+	 * @param dest   the id of the last vertex.
+	 * @return the number of edges in the shortest path.
+	 */
+	public int getNumEdges(int source, int dest) {
+		int index = index(source, dest);
+		return cost[index] == INFINITY ? -1 : hops[index];
+	}
+
+	/**
+	 * Return the ids of the vertices on the shortest path from source to dest,
+	 * found by following the next vertex matrix. <br>
+	 * pre: 0 <= source, dest < getGraph().numVertices()
+	 *
+	 * @param source the id of the first vertex.
+	 * @param dest   the id of the last vertex.
+	 * @return the path with source at index 0 and dest at the end, or an empty
+	 *         array if no path exists.
+	 */
+	public int[] getPathIds(int source, int dest) {
+		int index = index(source, dest);
+		int[] result = new int[cost[index] == INFINITY ? 0 : hops[index] + 1];
+		int v = source;
+		for (int i = 0; i < result.length; i++) {
+			result[i] = v;
+			v = next[v * n + dest];
+		}
+		return result;
+	}
+
+	// The raw arrays for CompactGraph.findAllPaths. Row s holds the paths
+	// from s.
+	double[] costs() {
+		return cost;
+	}
+
+	int[] hopCounts() {
+		return hops;
+	}
+
+	private int index(int source, int dest) {
+		if (source < 0 || source >= n || dest < 0 || dest >= n) {
+			throw new IllegalArgumentException("Violation of precondition. " + "ids must be 0 to " + (n - 1) + ". "
+					+ source + ", " + dest);
+		}
+		return source * n + dest;
+	}
+
+	// The blocked Floyd-Warshall algorithm. For each tile kb along the
+	// diagonal, first the diagonal tile is updated with itself, then the
+	// other tiles in its row and column with it, then every remaining tile
+	// with the tiles in its row and column. Within each of the last two
+	// phases the tiles are independent.
+	private void solve(ExecutorService executor) {
+		int numTiles = (n + TILE - 1) / TILE;
+		for (int kb = 0; kb < numTiles; kb++) {
+			final int k = kb;
+			updateTile(k, k, k);
+			List<Callable<Void>> tasks = new ArrayList<>();
+			for (int t = 0; t < numTiles; t++) {
+				if (t != k) {
+					final int other = t;
+					tasks.add(() -> {
+						updateTile(k, other, k);
+						updateTile(other, k, k);
+						return null;
+					});
+				}
+			}
+			run(tasks, executor);
+			tasks.clear();
+			for (int ib = 0; ib < numTiles; ib++) {
+				if (ib != k) {
+					final int row = ib;
+					tasks.add(() -> {
+						for (int jb = 0; jb < numTiles; jb++) {
+							if (jb != k) {
+								updateTile(row, jb, k);
+							}
+						}
+						return null;
+					});
+				}
+			}
+			run(tasks, executor);
+		}
+	}
+
+	private static void run(List<Callable<Void>> tasks, ExecutorService executor) {
+		try {
+			if (executor == null) {
+				for (Callable<Void> task : tasks) {
+					task.call();
+				}
+			} else {
+				for (Future<Void> f : executor.invokeAll(tasks)) {
+					f.get();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while finding all paths.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// Update tile (ib, jb) with the paths through the vertices of tile kb,
+	// using tiles (ib, kb) and (kb, jb).
+	private void updateTile(int ib, int jb, int kb) {
+		double[] cost = this.cost;
+		int[] hops = this.hops;
+		int[] next = this.next;
+		int iEnd = Math.min(n, (ib + 1) * TILE);
+		int jStart = jb * TILE;
+		int jEnd = Math.min(n, jStart + TILE);
+		int kEnd = Math.min(n, (kb + 1) * TILE);
+		for (int k = kb * TILE; k < kEnd; k++) {
+			int kRow = k * n;
+			for (int i = ib * TILE; i < iEnd; i++) {
+				int iRow = i * n;
+				double toK = cost[iRow + k];
+				if (toK == INFINITY) {
+					continue;
+				}
+				for (int j = jStart; j < jEnd; j++) {
+					// Adding to INFINITY gives INFINITY, so a missing path from
+					// k only gets past this test when there is no path to j
+					// either, and is caught below. Nearly every step stops here.
+					double through = toK + cost[kRow + j];
+					if (through <= cost[iRow + j]) {
+						relax(iRow + j, iRow + k, kRow + j, through);
+					}
+				}
+			}
+		}
+	}
+
+	// Replace the path at index with the path made of the paths at toK and
+	// fromK if it costs less, or the same with fewer edges.
+	private void relax(int index, int toK, int fromK, double through) {
+		if (cost[fromK] == INFINITY) {
+			return;
+		}
+		int throughHops = hops[toK] + hops[fromK];
+		if (through < cost[index] || throughHops < hops[index]) {
+			cost[index] = through;
+			hops[index] = throughHops;
+			next[index] = next[toK];
+		}
+	}
+}
@@ -0,0 +1,116 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The result of a diameter search: the longest shortest path found, and an
+ * upper bound on the cost of the longest shortest path in the graph. For an
+ * exact search the bound equals the cost of the path found. For a sampled search
+ * the true diameter is somewhere from getCost() to getUpperBound(). The
+ * diameter is the cost of the longest shortest path between any two vertices
+ * where the second can be reached from the first, the same value as
+ * costOfLongestShortestPath after findAllPaths.
+ */
+public class Diameter {
+
+	private final CompactGraph graph;
+	private final int[] vertexIds;
+	private final double cost;
+	private final double upperBound;
+	private final int numSearches;
+
+	// vertexIds is owned by the new Diameter and must not be changed after
+	Diameter(CompactGraph graph, int[] vertexIds, double cost, double upperBound, int numSearches) {
+		this.graph = graph;
+		this.vertexIds = vertexIds;
+		this.cost = cost;
+		this.upperBound = upperBound;
+		this.numSearches = numSearches;
+	}
+
+	/**
+	 * Return the cost of the longest shortest path found. This is the diameter if
+	 * isExact() is true and a lower bound on it otherwise. 0 if no vertex can
+	 * reach another.
+	 *
+	 * @return the cost of the longest shortest path found.
+	 */
+	public double getCost() {
+		return cost;
+	}
+
+	/**
+	 * Return a value the diameter is known not to be more than. This is
+	 * Double.MAX_VALUE if the sampled searches did not give any bound.
+	 *
+	 * @return an upper bound on the diameter.
+	 */
+	public double getUpperBound() {
+		return upperBound;
+	}
+
+	/**
+	 * Return true if getCost() is the diameter.
+	 *
+	 * @return true if the diameter is known exactly.
+	 */
+	public boolean isExact() {
+		return cost == upperBound;
+	}
+
+	/**
+	 * Return the number of edges in the longest shortest path found, or -1 if
+	 * there is none.
+	 *
+	 * @return the number of edges in the path.
+	 */
+	public int getNumEdges() {
+		return vertexIds.length - 1;
+	}
+
+	/**
+	 * Return the ids of the vertices on the longest shortest path found.
+	 *
+	 * @return the ids of the vertices on the path, source first.
+	 */
+	public int[] getVertexIds() {
+		return vertexIds.clone();
+	}
+
+	/**
+	 * Return the names of the vertices on the longest shortest path found.
+	 *
+	 * @return the names of the vertices on the path, source first.
+	 */
+	public List<String> getNames() {
+		List<String> result = new ArrayList<>(vertexIds.length);
+		for (int v : vertexIds) {
+			result.add(graph.nameOf(v));
+		}
+		return result;
+	}
+
+	/**
+	 * Return the number of single source searches used to find this result.
+	 *
+	 * @return the number of searches.
+	 */
+	public int getNumSearches() {
+		return numSearches;
+	}
+
+	public String toString() {
+		StringBuilder result = new StringBuilder("[");
+		for (int i = 0; i < vertexIds.length; i++) {
+			if (i > 0) {
+				result.append(", ");
+			}
+			result.append(graph.nameOf(vertexIds[i]));
+		}
+		result.append("]");
+		if (vertexIds.length > 0) {
+			result.append(" cost: ");
+			result.append(cost);
+		}
+		return result.toString();
+	}
+}
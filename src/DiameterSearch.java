@@ -0,0 +1,368 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Finds the diameter of a CompactGraph, the cost of its longest shortest path,
+ * without a search from every vertex.
+ *
+ * The exact search keeps a lower and an upper bound on the eccentricity of every
+ * vertex, the cost of the longest shortest path leaving it. Each step searches
+ * forward and backward from one vertex w, which gives its eccentricity exactly
+ * and, by the triangle inequality, tightens the bounds of every vertex in the
+ * same strongly connected component as w. Vertices whose upper bound is no more
+ * than the longest path found so far are dropped, and the search stops when none
+ * are left. Steps alternate between the vertex with the largest upper bound and
+ * the one with the smallest lower bound, as in Takes and Kosters' BoundingDiameters.
+ * Bounds from a search only carry over within a component, so after each step
+ * the upper bounds are also passed back along edges between components: no
+ * vertex has a longer shortest path than the most an edge leaving it costs plus
+ * the upper bound of the vertex the edge goes to. On most real graphs only a
+ * handful of steps are needed.
+ *
+ * The sampled search does the same steps from randomly chosen vertices and stops
+ * after a given number of them. The result holds the longest path found, which
+ * is a lower bound on the diameter, and the largest upper bound left, which is an
+ * upper bound.
+ *
+ * A DiameterSearch is not thread safe; each thread needs its own.
+ */
+public class DiameterSearch {
+
+	private static final double INFINITY = SearchState.INFINITY;
+
+	private static final int NO_VERTEX = SearchState.NO_VERTEX;
+
+	private final CompactGraph graph;
+	private final CompactGraph reverse;
+
+	// component[v] is the strongly connected component v is in. Vertices in
+	// the same component reach exactly the same vertices, so the bounds found
+	// from one of them hold for the others.
+	private final int[] component;
+
+	// the vertices by component, components in reverse topological order, so
+	// the edges leaving a component go to components earlier in this order
+	private final int[] byComponent;
+
+	// results of the current run
+	private double[] lower;
+	private double[] upper;
+	private boolean[] searched;
+	private double best;
+	private int[] bestPath;
+	private int numSearches;
+
+	/**
+	 * Create a diameter search for the given graph. <br>
+	 * pre: graph != null
+	 *
+	 * @param graph The graph to search.
+	 */
+	public DiameterSearch(CompactGraph graph) {
+		if (graph == null) {
+			throw new IllegalArgumentException("Violation of precondition. " + "graph may not be null.");
+		}
+		this.graph = graph;
+		reverse = graph.reverse();
+		component = strongComponents();
+		byComponent = sortByComponent();
+	}
+
+	/**
+	 * Return the graph this object searches.
+	 *
+	 * @return the graph this object searches.
+	 */
+	public CompactGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Find the diameter of the graph exactly.
+	 *
+	 * @param weighted If weighted == true use edge costs, otherwise every edge
+	 *                 costs 1.
+	 * @return the longest shortest path in the graph.
+	 */
+	public Diameter exact(boolean weighted) {
+		return run(weighted, Integer.MAX_VALUE, null);
+	}
+
+	/**
+	 * Estimate the diameter of the graph with at most numSamples steps from
+	 * randomly chosen vertices, each step being one forward and one backward
+	 * search. The diameter is between getCost() and getUpperBound() of the
+	 * result. If the bounds meet before numSamples steps the search stops early
+	 * and the result is exact. <br>
+	 * pre: numSamples > 0
+	 *
+	 * @param weighted   If weighted == true use edge costs, otherwise every edge
+	 *                   costs 1.
+	 * @param numSamples The most vertices to search from.
+	 * @param seed       The random seed used to choose the vertices.
+	 * @return the longest shortest path found and a bound on the diameter.
+	 */
+	public Diameter sampled(boolean weighted, int numSamples, long seed) {
+		if (numSamples <= 0) {
+			throw new IllegalArgumentException("Violation of precondition. " + "numSamples must be > 0. " + numSamples);
+		}
+		return run(weighted, numSamples, new Random(seed));
+	}
+
+	// Do at most maxSteps steps, choosing the vertices with rand or, if rand
+	// is null, alternately by largest upper and smallest lower bound.
+	private Diameter run(boolean weighted, int maxSteps, Random rand) {
+		int n = graph.numVertices();
+		lower = new double[n];
+		upper = new double[n];
+		searched = new boolean[n];
+		for (int v = 0; v < n; v++) {
+			// a vertex with no edges leaving it reaches nothing
+			upper[v] = graph.firstEdge(v) == graph.endEdge(v) ? 0 : INFINITY;
+		}
+		best = 0;
+		bestPath = new int[0];
+		numSearches = 0;
+		SearchState forward = new SearchState(n);
+		SearchState backward = new SearchState(n);
+		passUpperBoundsBack(weighted);
+		boolean pickLargestUpper = true;
+		for (int step = 0; step < maxSteps; step++) {
+			int w = rand == null ? select(pickLargestUpper) : sample(rand);
+			if (w == NO_VERTEX) {
+				break;
+			}
+			pickLargestUpper = !pickLargestUpper;
+			step(w, weighted, forward, backward);
+			passUpperBoundsBack(weighted);
+		}
+		double upperBound = best;
+		for (int v = 0; v < n; v++) {
+			if (!searched[v] && upperBound < upper[v]) {
+				upperBound = upper[v];
+			}
+		}
+		Diameter result = new Diameter(graph, bestPath, best, upperBound, numSearches);
+		lower = null;
+		upper = null;
+		searched = null;
+		bestPath = null;
+		return result;
+	}
+
+	// Search forward and backward from w and update the bounds.
+	private void step(int w, boolean weighted, SearchState forward, SearchState backward) {
+		search(graph, w, weighted, forward);
+		search(reverse, w, weighted, backward);
+		numSearches += 2;
+		searched[w] = true;
+		double[] costFrom = forward.cost;
+		double[] costTo = backward.cost;
+		int n = costFrom.length;
+
+		int farthest = farthest(w, costFrom);
+		double eccentricity = farthest == NO_VERTEX ? 0 : costFrom[farthest];
+		lower[w] = eccentricity;
+		upper[w] = eccentricity;
+		if (best < eccentricity) {
+			best = eccentricity;
+			bestPath = forward.pathTo(farthest);
+		}
+
+		// The backward search gives the cost from every vertex v to w, a path
+		// v has, so a lower bound on the eccentricity of v.
+		for (int v = 0; v < n; v++) {
+			if (v != w && costTo[v] != INFINITY) {
+				lower[v] = Math.max(lower[v], costTo[v]);
+				if (component[v] == component[w]) {
+					upper[v] = Math.min(upper[v], costTo[v] + eccentricity);
+					lower[v] = Math.max(lower[v], eccentricity - costFrom[v]);
+				}
+			}
+		}
+		int farthestTo = farthest(w, costTo);
+		if (farthestTo != NO_VERTEX && best < costTo[farthestTo]) {
+			best = costTo[farthestTo];
+			bestPath = reversed(backward.pathTo(farthestTo));
+		}
+	}
+
+	// Lower the upper bound of each vertex to the most an edge leaving it
+	// costs plus the upper bound of the vertex the edge goes to. Every path
+	// leaving a vertex starts with one of its edges, so this is a bound too.
+	// Going through the components in reverse topological order passes bounds
+	// all the way back in one pass.
+	private void passUpperBoundsBack(boolean weighted) {
+		for (int v : byComponent) {
+			if (!searched[v]) {
+				double bound = 0;
+				for (int e = graph.firstEdge(v); e < graph.endEdge(v) && bound < upper[v]; e++) {
+					bound = Math.max(bound, (weighted ? graph.weight(e) : 1) + upper[graph.target(e)]);
+				}
+				upper[v] = Math.min(upper[v], bound);
+			}
+		}
+	}
+
+	private static void search(CompactGraph g, int start, boolean weighted, SearchState state) {
+		if (weighted) {
+			g.dijkstra(start, state);
+		} else {
+			g.findUnweightedShortestPath(start, state);
+		}
+	}
+
+	// the first vertex by id with the highest cost, or NO_VERTEX if no vertex
+	// other than start has a cost
+	private static int farthest(int start, double[] cost) {
+		int result = NO_VERTEX;
+		for (int v = 0; v < cost.length; v++) {
+			if (v != start && cost[v] != INFINITY && (result == NO_VERTEX || cost[result] < cost[v])) {
+				result = v;
+			}
+		}
+		return result;
+	}
+
+	// A vertex whose eccentricity may still be more than the longest path
+	// found so far.
+	private boolean isCandidate(int v) {
+		return !searched[v] && upper[v] > best;
+	}
+
+	// Return the candidate with the largest upper bound or the smallest lower
+	// bound, ties going to the vertex with the most edges. NO_VERTEX if there
+	// are no candidates left.
+	private int select(boolean largestUpper) {
+		int result = NO_VERTEX;
+		for (int v = 0; v < searched.length; v++) {
+			if (isCandidate(v)) {
+				if (result == NO_VERTEX) {
+					result = v;
+				} else {
+					double diff = largestUpper ? upper[v] - upper[result] : lower[result] - lower[v];
+					if (diff > 0 || (diff == 0 && degree(v) > degree(result))) {
+						result = v;
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	// Return a candidate chosen at random, or NO_VERTEX if there are none.
+	private int sample(Random rand) {
+		int numCandidates = 0;
+		for (int v = 0; v < searched.length; v++) {
+			if (isCandidate(v)) {
+				numCandidates++;
+			}
+		}
+		if (numCandidates == 0) {
+			return NO_VERTEX;
+		}
+		int index = rand.nextInt(numCandidates);
+		for (int v = 0; v < searched.length; v++) {
+			if (isCandidate(v) && index-- == 0) {
+				return v;
+			}
+		}
+		throw new IllegalStateException("Candidate not found.");
+	}
+
+	private int degree(int v) {
+		return graph.endEdge(v) - graph.firstEdge(v) + reverse.endEdge(v) - reverse.firstEdge(v);
+	}
+
+	private static int[] reversed(int[] ids) {
+		for (int i = 0, j = ids.length - 1; i < j; i++, j--) {
+			int temp = ids[i];
+			ids[i] = ids[j];
+			ids[j] = temp;
+		}
+		return ids;
+	}
+
+	// the vertices sorted by component, highest component number first
+	private int[] sortByComponent() {
+		int n = component.length;
+		int numComponents = 0;
+		for (int c : component) {
+			numComponents = Math.max(numComponents, c + 1);
+		}
+		// counting sort on numComponents - 1 - component[v]
+		int[] start = new int[numComponents + 1];
+		for (int c : component) {
+			start[numComponents - c]++;
+		}
+		for (int i = 0; i < numComponents; i++) {
+			start[i + 1] += start[i];
+		}
+		int[] result = new int[n];
+		for (int v = 0; v < n; v++) {
+			result[start[numComponents - 1 - component[v]]++] = v;
+		}
+		return result;
+	}
+
+	// Number the strongly connected components with Kosaraju's algorithm,
+	// using explicit stacks so long paths do not overflow the call stack.
+	// Components are numbered in topological order: every edge between two
+	// components goes to the one with the higher number.
+	private int[] strongComponents() {
+		int n = graph.numVertices();
+		// order the vertices by when their depth first search finishes
+		int[] order = new int[n];
+		int numOrdered = 0;
+		boolean[] visited = new boolean[n];
+		int[] stack = new int[n];
+		int[] nextEdge = new int[n];
+		for (int s = 0; s < n; s++) {
+			if (!visited[s]) {
+				visited[s] = true;
+				nextEdge[s] = graph.firstEdge(s);
+				int top = 0;
+				stack[top++] = s;
+				while (top > 0) {
+					int v = stack[top - 1];
+					if (nextEdge[v] < graph.endEdge(v)) {
+						int u = graph.target(nextEdge[v]++);
+						if (!visited[u]) {
+							visited[u] = true;
+							nextEdge[u] = graph.firstEdge(u);
+							stack[top++] = u;
+						}
+					} else {
+						top--;
+						order[numOrdered++] = v;
+					}
+				}
+			}
+		}
+		// the vertices reached backward from each root, latest finish first,
+		// form one component
+		int[] result = new int[n];
+		Arrays.fill(result, NO_VERTEX);
+		int numComponents = 0;
+		for (int i = n - 1; i >= 0; i--) {
+			int root = order[i];
+			if (result[root] == NO_VERTEX) {
+				result[root] = numComponents;
+				int top = 0;
+				stack[top++] = root;
+				while (top > 0) {
+					int v = stack[--top];
+					for (int e = reverse.firstEdge(v); e < reverse.endEdge(v); e++) {
+						int u = reverse.target(e);
+						if (result[u] == NO_VERTEX) {
+							result[u] = numComponents;
+							stack[top++] = u;
+						}
+					}
+				}
+				numComponents++;
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,508 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Builds a Graph from a text file with one edge per line. Each line holds the
+ * source name, the destination name and optionally the cost, separated by
+ * spaces, tabs or commas. A missing cost is taken to be 1; a cost given must be
+ * finite and > 0. Blank lines and lines starting with # are skipped. Names may
+ * not contain separators.
+ *
+ * The file is memory mapped and split into chunks at line boundaries. Each chunk
+ * is parsed on its own thread straight from the mapped bytes; vertex names are
+ * interned as bytes and only turned into a String once per distinct name per
+ * chunk. The edges of all the chunks are then placed in the arrays of a
+ * CompactGraph in one pass, and the Graph is built from it without the per edge
+ * work of addEdge. The result is the same as calling addEdge for every line
+ * from first to last: vertices get ids in the order their names first appear,
+ * and a later line for an edge already seen replaces its cost.
+ */
+public class EdgeListLoader {
+
+	// largest chunk mapped at once. Must be less than Integer.MAX_VALUE.
+	private static final long MAX_CHUNK_SIZE = 1 << 30;
+
+	// smallest chunk worth handing to its own thread
+	private static final long MIN_CHUNK_SIZE = 1 << 20;
+
+	private static final byte COMMENT = '#';
+
+	// exact powers of ten for the fast path in parseCost
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	private EdgeListLoader() {
+	}
+
+	/**
+	 * Load the edge list in the given file using one thread per available
+	 * processor. <br>
+	 * pre: fileName != null
+	 *
+	 * @param fileName the file to load
+	 * @return a new Graph with the edges in the file
+	 * @throws IOException if the file cannot be read
+	 */
+	public static Graph load(String fileName) throws IOException {
+		return load(fileName, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Load the edge list in the given file. <br>
+	 * pre: fileName != null, numThreads > 0
+	 *
+	 * @param fileName   the file to load
+	 * @param numThreads the number of threads used to parse the file
+	 * @return a new Graph with the edges in the file
+	 * @throws IOException if the file cannot be read
+	 */
+	public static Graph load(String fileName, int numThreads) throws IOException {
+		if (fileName == null) {
+			throw new IllegalArgumentException("Violation of precondition. " + "fileName may not be null.");
+		}
+		if (numThreads <= 0) {
+			throw new IllegalArgumentException("Violation of precondition. " + "numThreads must be > 0. " + numThreads);
+		}
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			List<Chunk> chunks = split(channel, numThreads);
+			parseAll(chunks, numThreads);
+			return Graph.fromCompact(merge(chunks));
+		}
+	}
+
+	// Put the edges of the parsed chunks, in file order, into the arrays of a
+	// new CompactGraph. Each distinct name is looked up once per chunk.
+	private static CompactGraph merge(List<Chunk> chunks) throws IOException {
+		Map<String, Integer> ids = new HashMap<>();
+		List<String> names = new ArrayList<>();
+		int[][] globalIds = new int[chunks.size()][];
+		long numEdges = 0;
+		for (int c = 0; c < globalIds.length; c++) {
+			Chunk chunk = chunks.get(c);
+			globalIds[c] = new int[chunk.names.size()];
+			for (int i = 0; i < globalIds[c].length; i++) {
+				String name = chunk.names.name(i);
+				Integer id = ids.get(name);
+				if (id == null) {
+					id = names.size();
+					ids.put(name, id);
+					names.add(name);
+				}
+				globalIds[c][i] = id;
+			}
+			numEdges += chunk.numEdges;
+		}
+		if (numEdges > Integer.MAX_VALUE - 8) {
+			throw new IOException("The file has more edges than a Graph can hold: " + numEdges);
+		}
+		int n = names.size();
+
+		// count the edges leaving each vertex, then place them in file order
+		int[] offsets = new int[n + 1];
+		for (int c = 0; c < globalIds.length; c++) {
+			Chunk chunk = chunks.get(c);
+			for (int i = 0; i < chunk.numEdges; i++) {
+				offsets[globalIds[c][chunk.sources[i]] + 1]++;
+			}
+		}
+		for (int v = 0; v < n; v++) {
+			offsets[v + 1] += offsets[v];
+		}
+		int[] next = Arrays.copyOf(offsets, n);
+		int[] targets = new int[(int) numEdges];
+		double[] weights = new double[(int) numEdges];
+		for (int c = 0; c < globalIds.length; c++) {
+			Chunk chunk = chunks.get(c);
+			for (int i = 0; i < chunk.numEdges; i++) {
+				int e = next[globalIds[c][chunk.sources[i]]]++;
+				targets[e] = globalIds[c][chunk.dests[i]];
+				weights[e] = chunk.costs[i];
+			}
+		}
+
+		// keep the first of the edges from a vertex to the same destination,
+		// with the cost of the last, as addEdge does. owner[d] is the last
+		// vertex with an edge to d and slot[d] where that edge is.
+		int[] owner = new int[n];
+		int[] slot = new int[n];
+		Arrays.fill(owner, -1);
+		int size = 0;
+		for (int v = 0; v < n; v++) {
+			int first = offsets[v];
+			int end = offsets[v + 1];
+			offsets[v] = size;
+			for (int e = first; e < end; e++) {
+				int d = targets[e];
+				if (owner[d] == v) {
+					weights[slot[d]] = weights[e];
+				} else {
+					owner[d] = v;
+					slot[d] = size;
+					targets[size] = d;
+					weights[size] = weights[e];
+					size++;
+				}
+			}
+		}
+		offsets[n] = size;
+		if (size < numEdges) {
+			targets = Arrays.copyOf(targets, size);
+			weights = Arrays.copyOf(weights, size);
+		}
+		return new CompactGraph(names.toArray(new String[n]), ids, null, null, offsets, targets, weights);
+	}
+
+	// Split the file into chunks that each start at the beginning of a line.
+	private static List<Chunk> split(FileChannel channel, int numThreads) throws IOException {
+		long size = channel.size();
+		long target = Math.max(MIN_CHUNK_SIZE, size / numThreads + 1);
+		target = Math.min(target, MAX_CHUNK_SIZE);
+		List<Chunk> result = new ArrayList<>();
+		long start = 0;
+		while (start < size) {
+			long end = Math.min(size, start + target);
+			if (end < size) {
+				end = nextLineStart(channel, end);
+			}
+			if (end - start > Integer.MAX_VALUE) {
+				throw new IOException("Line starting near byte " + start + " is too long.");
+			}
+			result.add(new Chunk(channel, start, end));
+			start = end;
+		}
+		return result;
+	}
+
+	// Return the position just past the first newline at or after pos,
+	// or the size of the file if there is no newline.
+	private static long nextLineStart(FileChannel channel, long pos) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(1 << 16);
+		long size = channel.size();
+		while (pos < size) {
+			buf.clear();
+			int read = channel.read(buf, pos);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				if (buf.get(i) == '\n') {
+					return pos + i + 1;
+				}
+			}
+			pos += read;
+		}
+		return size;
+	}
+
+	// parse the chunks on a pool of numThreads threads
+	private static void parseAll(List<Chunk> chunks, int numThreads) throws IOException {
+		if (numThreads == 1 || chunks.size() == 1) {
+			for (Chunk c : chunks) {
+				c.call();
+			}
+			return;
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(numThreads, chunks.size()));
+		try {
+			for (Future<Chunk> f : pool.invokeAll(chunks)) {
+				f.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while loading edges.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			} else if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	// One piece of the file. call() parses it into local vertex numbers
+	// and edge arrays, which merge then puts in the Graph.
+	private static class Chunk implements Callable<Chunk> {
+
+		private final FileChannel channel;
+		private final long start;
+		private final long end;
+
+		private final NameTable names;
+		private int[] sources;
+		private int[] dests;
+		private double[] costs;
+		private int numEdges;
+
+		private Chunk(FileChannel channel, long start, long end) {
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+			names = new NameTable();
+			sources = new int[1024];
+			dests = new int[1024];
+			costs = new double[1024];
+		}
+
+		public Chunk call() throws IOException {
+			MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+			int limit = buf.limit();
+			int i = 0;
+			while (i < limit) {
+				int lineStart = i;
+				i = skipSeparators(buf, i, limit);
+				if (i == limit || buf.get(i) == '\n' || buf.get(i) == '\r' || buf.get(i) == COMMENT) {
+					i = skipLine(buf, i, limit);
+					continue;
+				}
+				int sourceStart = i;
+				i = skipField(buf, i, limit);
+				int source = names.intern(buf, sourceStart, i - sourceStart);
+				i = skipSeparators(buf, i, limit);
+				if (i == limit || isLineEnd(buf.get(i))) {
+					throw malformed(lineStart);
+				}
+				int destStart = i;
+				i = skipField(buf, i, limit);
+				int dest = names.intern(buf, destStart, i - destStart);
+				i = skipSeparators(buf, i, limit);
+				double cost = 1;
+				if (i < limit && !isLineEnd(buf.get(i))) {
+					int costStart = i;
+					i = skipField(buf, i, limit);
+					cost = parseCost(buf, costStart, i, start + lineStart);
+					i = skipSeparators(buf, i, limit);
+					if (i < limit && !isLineEnd(buf.get(i))) {
+						throw malformed(lineStart);
+					}
+				}
+				if (!(cost > 0) || Double.isInfinite(cost)) {
+					throw new IllegalArgumentException("Violation of precondition. "
+							+ "edge costs must be finite and > 0." + cost + " at byte " + (start + lineStart));
+				}
+				addEdge(source, dest, cost);
+				i = skipLine(buf, i, limit);
+			}
+			return this;
+		}
+
+		private IllegalArgumentException malformed(int lineStart) {
+			return new IllegalArgumentException("Malformed edge at byte " + (start + lineStart));
+		}
+
+		private void addEdge(int source, int dest, double cost) {
+			if (numEdges == sources.length) {
+				int newLength = numEdges * 2;
+				sources = Arrays.copyOf(sources, newLength);
+				dests = Arrays.copyOf(dests, newLength);
+				costs = Arrays.copyOf(costs, newLength);
+			}
+			sources[numEdges] = source;
+			dests[numEdges] = dest;
+			costs[numEdges] = cost;
+			numEdges++;
+		}
+	}
+
+	private static boolean isSeparator(byte b) {
+		return b == ' ' || b == '\t' || b == ',';
+	}
+
+	private static boolean isLineEnd(byte b) {
+		return b == '\n' || b == '\r';
+	}
+
+	private static int skipSeparators(ByteBuffer buf, int i, int limit) {
+		while (i < limit && isSeparator(buf.get(i))) {
+			i++;
+		}
+		return i;
+	}
+
+	private static int skipField(ByteBuffer buf, int i, int limit) {
+		while (i < limit && !isSeparator(buf.get(i)) && !isLineEnd(buf.get(i))) {
+			i++;
+		}
+		return i;
+	}
+
+	// return the index just past the end of the line containing i
+	private static int skipLine(ByteBuffer buf, int i, int limit) {
+		while (i < limit && buf.get(i) != '\n') {
+			i++;
+		}
+		return Math.min(limit, i + 1);
+	}
+
+	// Parse the cost in bytes from up to end. Plain decimals with at most 15
+	// significant digits are converted exactly without making a String.
+	// Anything else falls back to Double.parseDouble.
+	private static double parseCost(ByteBuffer buf, int from, int end, long lineOffset) {
+		int i = from;
+		boolean negative = false;
+		if (buf.get(i) == '-' || buf.get(i) == '+') {
+			negative = buf.get(i) == '-';
+			i++;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int fractionDigits = 0;
+		boolean seenPoint = false;
+		boolean simple = i < end;
+		while (i < end && simple) {
+			byte b = buf.get(i);
+			if (b >= '0' && b <= '9') {
+				if (mantissa != 0 || b != '0') {
+					digits++;
+				}
+				mantissa = mantissa * 10 + (b - '0');
+				if (seenPoint) {
+					fractionDigits++;
+				}
+				simple = digits <= 15;
+			} else if (b == '.' && !seenPoint) {
+				seenPoint = true;
+			} else {
+				simple = false;
+			}
+			i++;
+		}
+		if (simple && fractionDigits < POWERS_OF_TEN.length) {
+			double result = mantissa / POWERS_OF_TEN[fractionDigits];
+			return negative ? -result : result;
+		}
+		byte[] text = new byte[end - from];
+		for (int j = 0; j < text.length; j++) {
+			text[j] = buf.get(from + j);
+		}
+		try {
+			return Double.parseDouble(new String(text, StandardCharsets.UTF_8));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Malformed edge cost at byte " + lineOffset, e);
+		}
+	}
+
+	// Interns names read from the file. Names are kept as bytes in one
+	// pool so a String is only made once per distinct name, not once per
+	// line. Open addressing with linear probing.
+	private static class NameTable {
+
+		private static final int EMPTY = -1;
+
+		private byte[] pool;
+		private int poolSize;
+		private int[] nameStart;
+		private int[] nameLength;
+		private int[] nameHash;
+		private int size;
+		private int[] slots;
+
+		private NameTable() {
+			pool = new byte[1 << 12];
+			nameStart = new int[64];
+			nameLength = new int[64];
+			nameHash = new int[64];
+			slots = new int[128];
+			Arrays.fill(slots, EMPTY);
+		}
+
+		private int size() {
+			return size;
+		}
+
+		private String name(int id) {
+			return new String(pool, nameStart[id], nameLength[id], StandardCharsets.UTF_8);
+		}
+
+		// return the local id of the name in buf at from, adding it if new
+		private int intern(ByteBuffer buf, int from, int length) {
+			int hash = 0;
+			for (int i = 0; i < length; i++) {
+				hash = 31 * hash + buf.get(from + i);
+			}
+			int mask = slots.length - 1;
+			int slot = mix(hash) & mask;
+			while (slots[slot] != EMPTY) {
+				int id = slots[slot];
+				if (nameHash[id] == hash && sameName(id, buf, from, length)) {
+					return id;
+				}
+				slot = (slot + 1) & mask;
+			}
+			int id = add(buf, from, length, hash);
+			slots[slot] = id;
+			if (size * 2 > slots.length) {
+				rehash();
+			}
+			return id;
+		}
+
+		private boolean sameName(int id, ByteBuffer buf, int from, int length) {
+			if (nameLength[id] != length) {
+				return false;
+			}
+			int start = nameStart[id];
+			for (int i = 0; i < length; i++) {
+				if (pool[start + i] != buf.get(from + i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private int add(ByteBuffer buf, int from, int length, int hash) {
+			if (size == nameStart.length) {
+				nameStart = Arrays.copyOf(nameStart, size * 2);
+				nameLength = Arrays.copyOf(nameLength, size * 2);
+				nameHash = Arrays.copyOf(nameHash, size * 2);
+			}
+			if (poolSize + length > pool.length) {
+				pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolSize + length));
+			}
+			for (int i = 0; i < length; i++) {
+				pool[poolSize + i] = buf.get(from + i);
+			}
+			nameStart[size] = poolSize;
+			nameLength[size] = length;
+			nameHash[size] = hash;
+			poolSize += length;
+			return size++;
+		}
+
+		private void rehash() {
+			slots = new int[slots.length * 2];
+			Arrays.fill(slots, EMPTY);
+			int mask = slots.length - 1;
+			for (int id = 0; id < size; id++) {
+				int slot = mix(nameHash[id]) & mask;
+				while (slots[slot] != EMPTY) {
+					slot = (slot + 1) & mask;
+				}
+				slots[slot] = id;
+			}
+		}
+
+		// spread the bits of the hash so nearby names use different slots
+		private static int mix(int hash) {
+			hash *= 0x9E3779B9;
+			return hash ^ (hash >>> 16);
+		}
+	}
+}
@@ -0,0 +1,471 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Places the vertices of a CompactGraph with a force directed layout. Every
+ * pair of vertices pushes apart and every edge pulls its ends together, as in
+ * Fruchterman and Reingold's algorithm, plus a weak pull toward the center that
+ * keeps separate components from drifting away. Each step moves every vertex
+ * along the sum of its forces, at most as far as the current temperature, which
+ * drops a little each step until the layout settles.
+ *
+ * The pushes between all pairs are approximated with the Barnes-Hut method.
+ * Each step puts the vertices in a quadtree that keeps the total and center of
+ * the vertices below each node, and a vertex treats a node that is small
+ * compared to its distance as a single vertex at that center. This makes a step
+ * take time proportional to V log V + E instead of V * V. The forces on each
+ * vertex depend only on the positions at the start of the step, so the vertices
+ * are split over the threads of an ExecutorService to find them.
+ *
+ * start() runs the steps on a background thread, which publishes the positions
+ * as a SpatialIndex every so often. latest() returns the most recent one, and
+ * since a published index is never changed it can be drawn without locking.
+ */
+public class ForceLayout {
+
+	private static final int NO_NODE = -1;
+
+	// the natural length of an edge
+	private static final double EDGE_LENGTH = 10;
+
+	// Barnes-Hut accuracy: a node is treated as one vertex when its width is
+	// less than THETA times its distance
+	private static final double THETA = 1.0;
+
+	// strength of the pull toward the center, relative to an edge
+	private static final double GRAVITY = 0.01;
+
+	// the temperature is multiplied by this each step and the layout is
+	// settled once it falls below SETTLED times the edge length
+	private static final double COOLING = 0.95;
+	private static final double SETTLED = 0.01;
+
+	// vertices per task when finding the forces
+	private static final int VERTICES_PER_TASK = 2048;
+
+	// publish positions at most this often while running
+	private static final long PUBLISH_NANOS = 200_000_000L;
+
+	// quadtree nodes narrower than this are not split, so vertices at the
+	// same place share a leaf
+	private static final double MIN_NODE_SIZE = 1e-6;
+
+	private final CompactGraph graph;
+	private final CompactGraph reverse;
+	private final ExecutorService executor;
+
+	private final double[] xs;
+	private final double[] ys;
+	private final double[] dx;
+	private final double[] dy;
+	// written only by the thread doing the steps
+	private volatile double temperature;
+	private volatile int numSteps;
+
+	private final QuadTree tree;
+	private final List<ForceTask> tasks = new ArrayList<>();
+
+	private volatile SpatialIndex latest;
+	private volatile boolean running;
+	private Thread thread;
+
+	/**
+	 * Create a layout for graph. Vertices with a position start there and the
+	 * rest start at random places. <br>
+	 * pre: graph != null
+	 *
+	 * @param graph    The graph to lay out.
+	 * @param executor Finds the forces, or null to find them all on the thread
+	 *                 doing the steps.
+	 * @param seed     The random seed used to place vertices with no position.
+	 */
+	public ForceLayout(CompactGraph graph, ExecutorService executor, long seed) {
+		if (graph == null) {
+			throw new IllegalArgumentException("Violation of precondition. " + "graph may not be null.");
+		}
+		this.graph = graph;
+		this.executor = executor;
+		reverse = graph.reverse();
+		int n = graph.numVertices();
+		xs = new double[n];
+		ys = new double[n];
+		dx = new double[n];
+		dy = new double[n];
+		double side = EDGE_LENGTH * Math.sqrt(Math.max(1, n));
+		Random rand = new Random(seed);
+		for (int v = 0; v < n; v++) {
+			if (graph.hasPosition(v)) {
+				xs[v] = graph.getX(v);
+				ys[v] = graph.getY(v);
+			} else {
+				xs[v] = rand.nextDouble() * side;
+				ys[v] = rand.nextDouble() * side;
+			}
+		}
+		temperature = side / 10;
+		tree = new QuadTree(n);
+		for (int first = 0; first < n; first += VERTICES_PER_TASK) {
+			tasks.add(new ForceTask(first, Math.min(n, first + VERTICES_PER_TASK)));
+		}
+		publish();
+	}
+
+	/**
+	 * Return the graph being laid out.
+	 *
+	 * @return the graph being laid out.
+	 */
+	public CompactGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Return the most recently published positions. Any thread may call this at
+	 * any time; the result is never changed.
+	 *
+	 * @return the latest positions, indexed.
+	 */
+	public SpatialIndex latest() {
+		return latest;
+	}
+
+	/**
+	 * Return the number of steps done so far.
+	 *
+	 * @return the number of steps done.
+	 */
+	public int numSteps() {
+		return numSteps;
+	}
+
+	/**
+	 * Return true once the vertices have stopped moving by more than a small
+	 * fraction of an edge per step.
+	 *
+	 * @return true if the layout has settled.
+	 */
+	public boolean isSettled() {
+		return temperature < SETTLED * EDGE_LENGTH;
+	}
+
+	/**
+	 * Return true while the background thread is running.
+	 *
+	 * @return true while the background thread is running.
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Run steps on a background thread until the layout settles or stop is
+	 * called, publishing the positions as it goes and once more at the end. <br>
+	 * pre: isRunning() == false
+	 */
+	public synchronized void start() {
+		if (running) {
+			throw new IllegalStateException("The layout is already running.");
+		}
+		running = true;
+		thread = new Thread(this::run, "ForceLayout");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stop the background thread after its current step and wait for it to
+	 * finish. Does nothing if it is not running.
+	 */
+	public synchronized void stop() {
+		running = false;
+		if (thread != null) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			thread = null;
+		}
+	}
+
+	private void run() {
+		long lastPublish = System.nanoTime();
+		while (running && !isSettled()) {
+			step();
+			if (System.nanoTime() - lastPublish >= PUBLISH_NANOS) {
+				publish();
+				lastPublish = System.nanoTime();
+			}
+		}
+		publish();
+		running = false;
+	}
+
+	/**
+	 * Move every vertex once on the calling thread, without publishing. Must not
+	 * be called while the background thread is running. <br>
+	 * pre: isRunning() == false
+	 */
+	public void step() {
+		tree.build(xs, ys);
+		if (executor == null || tasks.size() == 1) {
+			for (ForceTask task : tasks) {
+				task.call();
+			}
+		} else {
+			try {
+				for (Future<ForceTask> f : executor.invokeAll(tasks)) {
+					f.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while laying out the graph.", e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+		for (int v = 0; v < xs.length; v++) {
+			double length = Math.sqrt(dx[v] * dx[v] + dy[v] * dy[v]);
+			if (length > 0) {
+				double move = Math.min(length, temperature) / length;
+				xs[v] += dx[v] * move;
+				ys[v] += dy[v] * move;
+			}
+		}
+		temperature *= COOLING;
+		numSteps++;
+	}
+
+	/**
+	 * Publish the current positions. Must not be called while the background
+	 * thread is running. <br>
+	 * pre: isRunning() == false or called from the background thread
+	 */
+	public void publish() {
+		// Copies, so the published index never sees a later step. Its levels
+		// are built here rather than on the thread that draws it.
+		SpatialIndex index = new SpatialIndex(graph, xs.clone(), ys.clone());
+		index.buildLevels();
+		latest = index;
+	}
+
+	// Finds the forces on a range of vertices.
+	private class ForceTask implements Callable<ForceTask> {
+
+		private final int first;
+		private final int last;
+
+		// the nodes still to visit for the current vertex
+		private int[] stack = new int[64];
+
+		// the pull along the edges of the current vertex
+		private double pullX;
+		private double pullY;
+
+		private ForceTask(int first, int last) {
+			this.first = first;
+			this.last = last;
+		}
+
+		public ForceTask call() {
+			double k2 = EDGE_LENGTH * EDGE_LENGTH;
+			for (int v = first; v < last; v++) {
+				double fx = 0;
+				double fy = 0;
+				double x = xs[v];
+				double y = ys[v];
+
+				// pushed away from every other vertex, k^2 / d
+				int top = 0;
+				stack[top++] = 0;
+				while (top > 0) {
+					int node = stack[--top];
+					double ddx = x - tree.centerX[node];
+					double ddy = y - tree.centerY[node];
+					double d2 = ddx * ddx + ddy * ddy;
+					int child = tree.firstChild[node];
+					double size = tree.size[node];
+					if (child == NO_NODE || size * size < THETA * THETA * d2) {
+						double mass = tree.mass[node];
+						if (child == NO_NODE && tree.body[node] == v) {
+							mass--;
+						}
+						if (mass > 0 && d2 > 0) {
+							double push = k2 * mass / d2;
+							fx += ddx * push;
+							fy += ddy * push;
+						} else if (mass > 0) {
+							// vertices at the same place push each other
+							// apart in a direction that depends on v
+							fx += EDGE_LENGTH * Math.cos(v);
+							fy += EDGE_LENGTH * Math.sin(v);
+						}
+					} else {
+						if (top + 4 > stack.length) {
+							stack = Arrays.copyOf(stack, stack.length * 2);
+						}
+						for (int c = child; c < child + 4; c++) {
+							if (tree.mass[c] > 0) {
+								stack[top++] = c;
+							}
+						}
+					}
+				}
+
+				// pulled toward the vertices it shares an edge with, d^2 / k
+				pullX = 0;
+				pullY = 0;
+				pull(graph, v, x, y);
+				pull(reverse, v, x, y);
+				fx -= pullX;
+				fy -= pullY;
+
+				// and weakly toward the center of the layout
+				fx -= GRAVITY * EDGE_LENGTH * (x - tree.centerX[0]);
+				fy -= GRAVITY * EDGE_LENGTH * (y - tree.centerY[0]);
+				dx[v] = fx;
+				dy[v] = fy;
+			}
+			return this;
+		}
+
+		// add the pull on v along its edges in g to pullX and pullY
+		private void pull(CompactGraph g, int v, double x, double y) {
+			for (int e = g.firstEdge(v); e < g.endEdge(v); e++) {
+				int w = g.target(e);
+				double ddx = x - xs[w];
+				double ddy = y - ys[w];
+				double d = Math.sqrt(ddx * ddx + ddy * ddy);
+				pullX += ddx * d / EDGE_LENGTH;
+				pullY += ddy * d / EDGE_LENGTH;
+			}
+		}
+	}
+
+	// A quadtree over the vertex positions, rebuilt each step, stored in
+	// arrays so a rebuild creates no objects once they are large enough.
+	private static class QuadTree {
+
+		// a node's four children are firstChild to firstChild + 3, or
+		// firstChild is NO_NODE for a leaf. A leaf holds one vertex, body, or
+		// several at the same place, or none.
+		private int[] firstChild;
+		private int[] body;
+		private double[] mass;
+		private double[] centerX;
+		private double[] centerY;
+
+		// each node covers a square from (left, top) of width size
+		private double[] left;
+		private double[] top;
+		private double[] size;
+		private int numNodes;
+
+		private QuadTree(int numVertices) {
+			allocate(4 * Math.max(1, numVertices) + 1);
+		}
+
+		private void allocate(int capacity) {
+			firstChild = Arrays.copyOf(firstChild == null ? new int[0] : firstChild, capacity);
+			body = Arrays.copyOf(body == null ? new int[0] : body, capacity);
+			mass = Arrays.copyOf(mass == null ? new double[0] : mass, capacity);
+			centerX = Arrays.copyOf(centerX == null ? new double[0] : centerX, capacity);
+			centerY = Arrays.copyOf(centerY == null ? new double[0] : centerY, capacity);
+			left = Arrays.copyOf(left == null ? new double[0] : left, capacity);
+			top = Arrays.copyOf(top == null ? new double[0] : top, capacity);
+			size = Arrays.copyOf(size == null ? new double[0] : size, capacity);
+		}
+
+		private void build(double[] xs, double[] ys) {
+			double minX = Double.POSITIVE_INFINITY;
+			double minY = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY;
+			double maxY = Double.NEGATIVE_INFINITY;
+			for (int v = 0; v < xs.length; v++) {
+				minX = Math.min(minX, xs[v]);
+				minY = Math.min(minY, ys[v]);
+				maxX = Math.max(maxX, xs[v]);
+				maxY = Math.max(maxY, ys[v]);
+			}
+			numNodes = 0;
+			newNode(minX, minY, Math.max(MIN_NODE_SIZE, Math.max(maxX - minX, maxY - minY)));
+			for (int v = 0; v < xs.length; v++) {
+				insert(v, xs[v], ys[v]);
+			}
+			// turn the sums of positions into centers
+			for (int node = 0; node < numNodes; node++) {
+				if (mass[node] > 0) {
+					centerX[node] /= mass[node];
+					centerY[node] /= mass[node];
+				}
+			}
+		}
+
+		private void insert(int v, double x, double y) {
+			int node = 0;
+			while (true) {
+				if (firstChild[node] == NO_NODE) {
+					if (mass[node] == 0 || size[node] < MIN_NODE_SIZE) {
+						add(node, v, x, y);
+						return;
+					}
+					// split the leaf and move the vertex it holds down
+					double half = size[node] / 2;
+					if (numNodes + 4 > firstChild.length) {
+						allocate(firstChild.length * 2);
+					}
+					int child = numNodes;
+					for (int i = 0; i < 4; i++) {
+						newNode(left[node] + (i & 1) * half, top[node] + (i >> 1) * half, half);
+					}
+					firstChild[node] = child;
+					// a leaf this large holds one vertex, so its sums are its
+					// position
+					int oldChild = child + quadrant(node, centerX[node], centerY[node]);
+					body[oldChild] = body[node];
+					mass[oldChild] = mass[node];
+					centerX[oldChild] = centerX[node];
+					centerY[oldChild] = centerY[node];
+				}
+				mass[node]++;
+				centerX[node] += x;
+				centerY[node] += y;
+				node = firstChild[node] + quadrant(node, x, y);
+			}
+		}
+
+		// the child of node that (x, y) falls in
+		private int quadrant(int node, double x, double y) {
+			double half = size[node] / 2;
+			return (x >= left[node] + half ? 1 : 0) + (y >= top[node] + half ? 2 : 0);
+		}
+
+		private void add(int node, int v, double x, double y) {
+			body[node] = v;
+			mass[node]++;
+			centerX[node] += x;
+			centerY[node] += y;
+		}
+
+		private void newNode(double x, double y, double width) {
+			int node = numNodes++;
+			firstChild[node] = NO_NODE;
+			body[node] = NO_NODE;
+			mass[node] = 0;
+			centerX[node] = 0;
+			centerY[node] = 0;
+			left[node] = x;
+			top[node] = y;
+			size[node] = width;
+		}
+	}
+}
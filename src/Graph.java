@@ -9,15 +9,16 @@
  *  Number of slip days I am using: 0
  */
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.PriorityQueue;
-import java.util.Queue;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Models a directed graph. Edges can be weighted. To model an undirected graph
@@ -30,13 +31,13 @@ import java.util.TreeSet;
  */
 public class Graph {
 
-	// used to indicate a vertex has not been visited and
-	// that no path exists between current start vertex.
-	private static final double INFINITY = Double.MAX_VALUE;
-
 	// The vertices in the graph. Every vertex must have a unique String label.
 	private Map<String, Vertex> vertices;
 
+	// The vertices in the order they were created. A vertex's id is its
+	// index in this list.
+	private List<Vertex> vertexList;
+
 	// Used to store the path between the two most distant vertices.
 	// In other words the vertices with the LONGEST shortest
 	// path of all the shortest paths in the graph.
@@ -46,16 +47,42 @@ public class Graph {
 	// Must set to true when the allPaths method is called.
 	private boolean allPathsFound;
 
-	private String currentStartVertexName;
+	// false once this Graph has changed in a way that makes the results of
+	// findAllPaths out of date
+	private boolean allPathsCurrent;
+
+	// Keeps the results of findAllPaths up to date as edges are added. null
+	// unless findAllPathsIncremental was the last all pairs method called.
+	private IncrementalAllPaths incremental;
+
+	// The result of the last call to findUnweightedShortestPath or dijkstra.
+	// null until one of them is called.
+	private ShortestPathTree currentTree;
+
+	// A frozen copy of this Graph that the searches run on. Made when
+	// first needed and thrown away whenever the Graph changes.
+	private volatile CompactGraph snapshot;
+
+	// Counts the changes made to this Graph. Cached results are only
+	// used if they were found on the current version.
+	private volatile long version;
 
-	// Used for djikstra's method
-	private final static int VERTEX_VISITED = 1;
+	// Optional cache of shortestPathTree results. null if not caching.
+	private ShortestPathCache cache;
+
+	// Optional counts of the work of the searches. null if not counting.
+	private volatile SearchMetrics metrics;
+
+	// Each thread keeps its own point to point search buffers. They are
+	// replaced when the frozen copy they were made for is out of date.
+	private final ThreadLocal<PointToPointSearch> pointSearch = new ThreadLocal<>();
 
 	/**
 	 * Create an empty graph.
 	 */
 	public Graph() {
 		vertices = new HashMap<>();
+		vertexList = new ArrayList<>();
 	}
 
 	/**
@@ -79,7 +106,33 @@ public class Graph {
 		}
 		Vertex s = getVertex(source);
 		Vertex d = getVertex(dest);
-		return s.addEdge(d, cost);
+		double oldCost = allPathsCurrent ? edgeCost(s, d) : SearchState.INFINITY;
+		beforeEdgeChanged(oldCost, cost);
+		changed();
+		boolean result = s.addEdge(d, cost);
+		edgeChanged(s.getId(), d.getId(), oldCost, cost);
+		return result;
+	}
+
+	/**
+	 * Same as addEdge(String, String, double) but the vertices are given by id,
+	 * as returned by idOf, so no names are looked up. Both vertices must
+	 * already exist. <br>
+	 * pre: 0 <= source < numVertices(), 0 <= dest < numVertices(), cost > 0
+	 *
+	 * @param source the id of the start vertex
+	 * @param dest   the id of the end vertex
+	 * @param cost   must be > 0
+	 * @return return true if an edge existed from source to dest prior to this
+	 *         method call, false otherwise.
+	 */
+	public boolean addEdge(int source, int dest, double cost) {
+		checkId(source);
+		checkId(dest);
+		if (cost <= 0) {
+			throw new IllegalArgumentException("Violation of precondition. " + "edge costs must be > 0." + cost);
+		}
+		return addEdgeUnchecked(source, dest, cost);
 	}
 
 	/**
@@ -114,67 +167,339 @@ public class Graph {
 	}
 
 	/**
-	 * Find all unweighted shortest paths from the Vertex with startName to all
-	 * other vertices in this Graph. <br>
-	 * After this method is called, call the printPath(String) method to get the
-	 * path from startName to any other vertex in this Graph.
+	 * Return the number of vertices in this Graph. The ids of the vertices are 0
+	 * to numVertices() - 1.
+	 *
+	 * @return the number of vertices.
+	 */
+	public int numVertices() {
+		return vertexList.size();
+	}
+
+	/**
+	 * Return the id of the vertex with the given name. Ids are given out in the
+	 * order the vertices are added, starting at 0, and never change, so a caller
+	 * can look a name up once and use the id with the int versions of addEdge,
+	 * dijkstra, findUnweightedShortestPath, getNumEdgesFromStart,
+	 * getWeightedCostFromStart and findPath, which do no hashing or String
+	 * comparisons. They are the same ids CompactGraph uses for a frozen copy. <br>
+	 * pre: name != null, containsVertex(name) == true
+	 *
+	 * @param name The name of the vertex.
+	 * @return the id of the vertex.
+	 */
+	public int idOf(String name) {
+		checkVertexName(name);
+		return vertices.get(name).getId();
+	}
+
+	/**
+	 * Return the name of the vertex with the given id. <br>
+	 * pre: 0 <= id < numVertices()
+	 *
+	 * @param id The id of the vertex.
+	 * @return the name of the vertex.
+	 */
+	public String nameOf(int id) {
+		checkId(id);
+		return vertexList.get(id).getName();
+	}
+
+	/**
+	 * Find the shortest paths from the Vertex with startName to all other vertices
+	 * in this Graph. Unlike findUnweightedShortestPath and dijkstra this method
+	 * does not change the current start vertex or any other state of this Graph,
+	 * so any number of threads may call it at once as long as no thread is
+	 * changing the Graph.
 	 *
 	 * <br>
 	 * pre: startName != null, containsVertex(startName) == true
 	 *
-	 * @param startName The starting vertex. This method will find all the
-	 *                  unweighted shortest paths from the give vertex to all other
-	 *                  vertices in the graph.
+	 * @param startName The starting vertex.
+	 * @param weighted  If weighted == true use dijkstra's algorithm otherwise use
+	 *                  the unweighted shortest path algorithm.
+	 * @return the shortest paths from startName.
 	 */
-	public void findUnweightedShortestPath(String startName) {
-		// CS314 STUDENTS - I RECOMMEND YOU LEAVE THIS METHOD AS IS.
-		// DO NOT ALTER IT. Mike
-		handleFUWSPPrecons(startName);
-
-		Queue<Vertex> q = prepForFindingUnweightedShortestPaths(startName);
-
-		while (!q.isEmpty()) {
-			Vertex current = q.remove();
-			for (Edge e : current.getAdjacent()) {
-				Vertex neighberNode = e.getDest();
-				// Is this the first time I have seen this vertex?
-				if (neighberNode.weightedCostFromStartVertex == INFINITY) {
-					// In an unweighted graph we treat
-					// the weighted cost and number of edges from start
-					// as the same.
-					neighberNode.weightedCostFromStartVertex = current.weightedCostFromStartVertex + 1;
-					neighberNode.numEdgesFromStartVertex = current.numEdgesFromStartVertex + 1;
-					neighberNode.prev = current;
-					q.add(neighberNode);
-				}
+	public ShortestPathTree shortestPathTree(String startName, boolean weighted) {
+		checkVertexName(startName);
+		return shortestPathTree(vertices.get(startName).getId(), weighted);
+	}
+
+	/**
+	 * Same as shortestPathTree(String, boolean) but the start vertex is given by
+	 * id. <br>
+	 * pre: 0 <= start < numVertices()
+	 *
+	 * @param start    The id of the starting vertex.
+	 * @param weighted If weighted == true use dijkstra's algorithm otherwise use
+	 *                 the unweighted shortest path algorithm.
+	 * @return the shortest paths from start.
+	 */
+	public ShortestPathTree shortestPathTree(int start, boolean weighted) {
+		checkId(start);
+		long currentVersion = version;
+		CompactGraph compact = snapshot();
+		ShortestPathCache c = cache;
+		ShortestPathTree result = (c == null) ? null : c.get(currentVersion, start, weighted);
+		if (result == null) {
+			result = compact.shortestPathTree(start, weighted);
+			if (c != null) {
+				c.put(currentVersion, result);
 			}
 		}
+		return result;
 	}
 
-	// Set up queue and instance variables to find
-	// unweighted shortest path algorithm from startName vertex
-	// to every other Vertex we can reach.
-	private Queue<Vertex> prepForFindingUnweightedShortestPaths(String startName) {
-		currentStartVertexName = startName;
-		clearAll();
-		Vertex start = vertices.get(startName);
-		start.weightedCostFromStartVertex = 0;
-		start.numEdgesFromStartVertex = 0;
-		Queue<Vertex> result = new LinkedList<>();
-		result.add(start);
-		return result;
+	/**
+	 * Find the shortest path from source to target. The search stops as soon as
+	 * the path to target is known instead of finding the paths to every vertex.
+	 * Like shortestPathTree this method does not change the state of this Graph.
+	 * <br>
+	 * pre: source != null, target != null, containsVertex(source) == true,
+	 * containsVertex(target) == true
+	 *
+	 * @param source   The starting vertex.
+	 * @param target   The ending vertex.
+	 * @param weighted If weighted == true use edge costs, otherwise every edge
+	 *                 costs 1.
+	 * @return the shortest path from source to target.
+	 */
+	public Route shortestPath(String source, String target, boolean weighted) {
+		return shortestPath(source, target, weighted, false);
+	}
+
+	/**
+	 * Find the shortest path from source to target. If bidirectional is true the
+	 * search runs forward from source and backward from target at the same time
+	 * and stops when they meet, which usually looks at far fewer vertices. <br>
+	 * pre: source != null, target != null, containsVertex(source) == true,
+	 * containsVertex(target) == true
+	 *
+	 * @param source        The starting vertex.
+	 * @param target        The ending vertex.
+	 * @param weighted      If weighted == true use edge costs, otherwise every edge
+	 *                      costs 1.
+	 * @param bidirectional If true search from both ends.
+	 * @return the shortest path from source to target.
+	 */
+	public Route shortestPath(String source, String target, boolean weighted, boolean bidirectional) {
+		checkVertexName(source);
+		checkVertexName(target);
+		CompactGraph compact = snapshot();
+		PointToPointSearch search = pointSearch(compact);
+		int s = compact.idOf(source);
+		int t = compact.idOf(target);
+		return bidirectional ? search.searchBidirectional(s, t, weighted) : search.search(s, t, weighted);
+	}
 
+	/**
+	 * Find the shortest weighted path from source to target with an A* search
+	 * guided by the straight line distance between vertex positions. The distance
+	 * is scaled by CompactGraph.minCostPerUnitDistance, the smallest edge cost
+	 * per unit of distance in this Graph, so the result is always a shortest
+	 * path. If any vertex with an edge has no position that scale is 0 and the
+	 * search is the same as dijkstra. <br>
+	 * pre: source != null, target != null, containsVertex(source) == true,
+	 * containsVertex(target) == true
+	 *
+	 * @param source The starting vertex.
+	 * @param target The ending vertex.
+	 * @return the shortest path from source to target.
+	 */
+	public Route shortestPathAStar(String source, String target) {
+		checkVertexName(source);
+		return shortestPathAStar(source, target, snapshot().minCostPerUnitDistance());
+	}
+
+	/**
+	 * Find the shortest weighted path from source to target with an A* search
+	 * guided by the straight line distance between vertex positions times
+	 * costPerUnit. If costPerUnit is more than the cost per unit of distance of
+	 * some edge the search is faster but the path found may not be the shortest.
+	 * <br>
+	 * pre: source != null, target != null, containsVertex(source) == true,
+	 * containsVertex(target) == true, costPerUnit >= 0
+	 *
+	 * @param source      The starting vertex.
+	 * @param target      The ending vertex.
+	 * @param costPerUnit The minimum cost of an edge per unit of distance.
+	 * @return the shortest path from source to target.
+	 */
+	public Route shortestPathAStar(String source, String target, double costPerUnit) {
+		checkVertexName(source);
+		checkVertexName(target);
+		CompactGraph compact = snapshot();
+		return pointSearch(compact).searchAStar(compact.idOf(source), compact.idOf(target), costPerUnit);
+	}
+
+	// return this thread's point to point search for the given frozen copy
+	private PointToPointSearch pointSearch(CompactGraph compact) {
+		PointToPointSearch search = pointSearch.get();
+		if (search == null || search.getGraph() != compact) {
+			search = new PointToPointSearch(compact);
+			pointSearch.set(search);
+		}
+		return search;
+	}
+
+	/**
+	 * Give the vertex with the given name a position, for example on the screen.
+	 * Positions are used by shortestPathAStar. <br>
+	 * pre: name != null, containsVertex(name) == true, x and y are finite
+	 *
+	 * @param name The name of the vertex.
+	 * @param x    The x coordinate of the vertex.
+	 * @param y    The y coordinate of the vertex.
+	 */
+	public void setPosition(String name, double x, double y) {
+		checkVertexName(name);
+		if (!Double.isFinite(x) || !Double.isFinite(y)) {
+			throw new IllegalArgumentException("Violation of precondition. " + "Coordinates must be finite.");
+		}
+		vertices.get(name).setPosition(x, y);
+		// positions do not change any shortest path, so cached results
+		// are still good but the frozen copy needs the new position
+		snapshot = null;
 	}
 
-	// check preconditions for findUnweightedShortestPath
-	private void handleFUWSPPrecons(String startName) {
-		if (startName == null) {
+	/**
+	 * Check if the vertex with the given name has a position. <br>
+	 * pre: name != null, containsVertex(name) == true
+	 *
+	 * @param name The name of the vertex.
+	 * @return true if the vertex has a position.
+	 */
+	public boolean hasPosition(String name) {
+		checkVertexName(name);
+		return vertices.get(name).hasPosition();
+	}
+
+	/**
+	 * Return the x coordinate of the vertex with the given name. <br>
+	 * pre: name != null, containsVertex(name) == true
+	 *
+	 * @param name The name of the vertex.
+	 * @return the x coordinate of the vertex, or NaN if it has no position.
+	 */
+	public double getX(String name) {
+		checkVertexName(name);
+		return vertices.get(name).getX();
+	}
+
+	/**
+	 * Return the y coordinate of the vertex with the given name. <br>
+	 * pre: name != null, containsVertex(name) == true
+	 *
+	 * @param name The name of the vertex.
+	 * @return the y coordinate of the vertex, or NaN if it has no position.
+	 */
+	public double getY(String name) {
+		checkVertexName(name);
+		return vertices.get(name).getY();
+	}
+
+	// check id is a vertex id in this Graph
+	private void checkId(int id) {
+		if (id < 0 || id >= vertexList.size()) {
+			throw new NoSuchElementException("No Vertex with id " + id + " exists in this Graph");
+		}
+	}
+
+	// check name is not null and is a vertex in this Graph
+	private void checkVertexName(String name) {
+		if (name == null) {
 			throw new IllegalArgumentException("Violation of precondition. " + "Vertex name may not be null.");
 		}
-		if (!containsVertex(startName)) {
-			throw new NoSuchElementException("No Verex named " + startName + " exists in this Graph");
+		if (!containsVertex(name)) {
+			throw new NoSuchElementException("No Vertex named " + name + " exists in this Graph");
+		}
+	}
+
+	/**
+	 * Cache the results of shortestPathTree, findUnweightedShortestPath and
+	 * dijkstra in the given cache so repeated searches from the same start vertex
+	 * do not have to be redone. The cache is emptied automatically whenever a
+	 * vertex or edge is added to this Graph. Pass null to stop caching.
+	 *
+	 * @param newCache the cache to use, or null for no cache
+	 */
+	public void setCache(ShortestPathCache newCache) {
+		cache = newCache;
+	}
+
+	/**
+	 * Return the cache set with setCache, or null if there is none.
+	 *
+	 * @return the cache of search results.
+	 */
+	public ShortestPathCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * Count the work of the searches and findAllPaths calls of this Graph in
+	 * metrics, as CompactGraph.setMetrics does. Searches answered from the cache
+	 * are not counted. Pass null to stop counting.
+	 *
+	 * @param newMetrics where to count the searches, or null.
+	 */
+	public void setMetrics(SearchMetrics newMetrics) {
+		metrics = newMetrics;
+		CompactGraph current = snapshot;
+		if (current != null) {
+			current.setMetrics(newMetrics);
 		}
+	}
+
+	/**
+	 * Return the metrics set with setMetrics, or null if there are none.
+	 *
+	 * @return where the searches are counted.
+	 */
+	public SearchMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Return a number that changes every time a vertex or edge is added to this
+	 * Graph or the cost of an edge is changed.
+	 *
+	 * @return the version of this Graph.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Find all unweighted shortest paths from the Vertex with startName to all
+	 * other vertices in this Graph. <br>
+	 * After this method is called, call the printPath(String) method to get the
+	 * path from startName to any other vertex in this Graph.
+	 *
+	 * <br>
+	 * pre: startName != null, containsVertex(startName) == true
+	 *
+	 * @param startName The starting vertex. This method will find all the
+	 *                  unweighted shortest paths from the give vertex to all other
+	 *                  vertices in the graph.
+	 * @return the unweighted shortest paths from startName.
+	 */
+	public ShortestPathTree findUnweightedShortestPath(String startName) {
+		currentTree = shortestPathTree(startName, false);
+		return currentTree;
+	}
 
+	/**
+	 * Same as findUnweightedShortestPath(String) but the start vertex is given by
+	 * id. <br>
+	 * pre: 0 <= start < numVertices()
+	 *
+	 * @param start The id of the starting vertex.
+	 * @return the unweighted shortest paths from start.
+	 */
+	public ShortestPathTree findUnweightedShortestPath(int start) {
+		currentTree = shortestPathTree(start, false);
+		return currentTree;
 	}
 
 	/**
@@ -190,62 +515,99 @@ public class Graph {
 	 * @param startName The starting vertex. This method will find all the weighted
 	 *                  shortest paths from the given vertex to all other vertices
 	 *                  in the graph.
+	 * @return the weighted shortest paths from startName.
 	 */
-	public void dijkstra(String startName) {
-		if (startName == null) {
-			throw new IllegalArgumentException("Violation of precondition. " + "Vertex name may not be null.");
-		}
-		if (!containsVertex(startName)) {
-			throw new NoSuchElementException("No Vertex named " + startName + " exists in this Graph");
-		}
-
-		currentStartVertexName = startName;
-		// CS314 STUDENTS - Complete this method
-		// Use a PriorityQueue of Path objects (not Vertex objects)
-		// It is acceptable to use the built in Java PriorityQueue class.
-		// Get setup for algorithm
-		PriorityQueue<Path> dQueue = getStartingQueue();
-		// While there are still vertices to dequeue
-		while (dQueue.size() > 0) {
-			// Retrieve the vertex with the smallest weighted path
-			Path temp = dQueue.remove();
-			Vertex curr = temp.dest;
-			// If the vertex has not been visited already
-			if (curr.scratch == 0) {
-				// Mark as visited
-				curr.scratch = VERTEX_VISITED;
-				// For every adjacent vertex
-				for (Edge e : curr.getAdjacent()) {
-					// If the cost from the current vertex to the adjacent vertex is less
-					// than the current total cost for the vertex update the cost
-					double newCost = e.getCost() + curr.weightedCostFromStartVertex;
-					Vertex next = e.getDest();
-					if (newCost < next.weightedCostFromStartVertex) {
-						next.weightedCostFromStartVertex = newCost;
-						next.prev = curr;
-						next.numEdgesFromStartVertex = curr.numEdgesFromStartVertex + 1;
-					}
-					// Add this vertex to the queue
-					dQueue.add(new Path(e.getDest(), newCost));
-				}
-			}
+	public ShortestPathTree dijkstra(String startName) {
+		currentTree = shortestPathTree(startName, true);
+		return currentTree;
+	}
+
+	/**
+	 * Same as dijkstra(String) but the start vertex is given by id. <br>
+	 * pre: 0 <= start < numVertices()
+	 *
+	 * @param start The id of the starting vertex.
+	 * @return the weighted shortest paths from start.
+	 */
+	public ShortestPathTree dijkstra(int start) {
+		currentTree = shortestPathTree(start, true);
+		return currentTree;
+	}
+
+	/**
+	 * Same as dijkstra(String) but the paths are found with the delta-stepping
+	 * algorithm, which spreads the work of one search over the threads of the
+	 * common ForkJoinPool. The bucket width is DeltaStepping.suggestDelta. <br>
+	 * pre: startName != null, containsVertex(startName) == true
+	 *
+	 * @param startName The starting vertex.
+	 * @return the weighted shortest paths from startName.
+	 */
+	public ShortestPathTree dijkstraParallel(String startName) {
+		checkVertexName(startName);
+		CompactGraph compact = snapshot();
+		return dijkstra(startName, DeltaStepping.suggestDelta(compact), ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Same as dijkstra(String) but the paths are found with the delta-stepping
+	 * algorithm using buckets of width delta, and the edges are relaxed on the
+	 * threads of executor. The costs and number of edges of the paths are exactly
+	 * those dijkstra finds. This pays off for a single search on a large graph;
+	 * for many searches at once give each thread its own ordinary search
+	 * instead. <br>
+	 * pre: startName != null, containsVertex(startName) == true, delta > 0,
+	 * executor != null
+	 *
+	 * @param startName The starting vertex.
+	 * @param delta     The width of the buckets. Edges costing more than this
+	 *                  are relaxed once per bucket rather than once per phase.
+	 * @param executor  Runs the relaxations.
+	 * @return the weighted shortest paths from startName.
+	 */
+	public ShortestPathTree dijkstra(String startName, double delta, ExecutorService executor) {
+		checkVertexName(startName);
+		if (executor == null) {
+			throw new IllegalArgumentException("Violation of precondition. " + "executor may not be null.");
 		}
+		CompactGraph compact = snapshot();
+		DeltaStepping search = new DeltaStepping(compact, executor);
+		currentTree = search.shortestPathTree(compact.idOf(startName), delta);
+		return currentTree;
 	}
 
-	// pre: startName != null
-	// post: does the setup and returns the priority queue for djikstra's alg.
-	private PriorityQueue<Path> getStartingQueue() {
-		// Reset all the vertices
-		clearAll();
-		// Set the initial vertex to have a cost of 0
-		Vertex start = vertices.get(currentStartVertexName);
-		start.weightedCostFromStartVertex = 0;
-		start.numEdgesFromStartVertex = 0;
+	/**
+	 * Same as dijkstra(String) but each step of the search is reported to
+	 * listener, for example a SearchEventLog that a viewer replays. The search
+	 * always runs, the shortest path cache is not used. <br>
+	 * pre: startName != null, containsVertex(startName) == true
+	 *
+	 * @param startName The starting vertex.
+	 * @param listener  Told about each step, or null.
+	 * @return the weighted shortest paths from startName.
+	 */
+	public ShortestPathTree dijkstra(String startName, SearchListener listener) {
+		checkVertexName(startName);
+		CompactGraph compact = snapshot();
+		currentTree = compact.shortestPathTree(compact.idOf(startName), true, listener);
+		return currentTree;
+	}
 
-		PriorityQueue<Path> dQueue = new PriorityQueue<>();
-		// Add the initial vertex
-		dQueue.add(new Path(start, 0));
-		return dQueue;
+	/**
+	 * Same as findUnweightedShortestPath(String) but each step of the search is
+	 * reported to listener. The search always runs, the shortest path cache is
+	 * not used. <br>
+	 * pre: startName != null, containsVertex(startName) == true
+	 *
+	 * @param startName The starting vertex.
+	 * @param listener  Told about each step, or null.
+	 * @return the unweighted shortest paths from startName.
+	 */
+	public ShortestPathTree findUnweightedShortestPath(String startName, SearchListener listener) {
+		checkVertexName(startName);
+		CompactGraph compact = snapshot();
+		currentTree = compact.shortestPathTree(compact.idOf(startName), false, listener);
+		return currentTree;
 	}
 
 	/**
@@ -278,68 +640,140 @@ public class Graph {
 	 * <br>
 	 * <br>
 	 * After this method is called the getAllPaths, getDiamter, and get longest path
-	 * methods may be called.
+	 * methods may be called. The searches run on a frozen copy of this Graph, so
+	 * this method does not change the current start vertex.
 	 *
 	 * @param weighted If weighted == true use dijkstra's algorithm otherwise use
 	 *                 the unweighted shortest path algorithm. (Ignore any weights
 	 *                 for edges. All edge weights considered to be 1.)
 	 */
 	public void findAllPaths(boolean weighted) {
-		allPathsFound = true;
+		// The totals are summed straight from the cost and hop arrays of one
+		// reused SearchState, and the longest path is only built when it beats
+		// the longest so far, so no Path is made per pair of vertices.
+		CompactGraph compact = freeze();
+		compact.findAllPaths(weighted);
+		copyAllPathsResults(compact);
+	}
+
+	/**
+	 * Same as findAllPaths(boolean) but the single source searches are spread over
+	 * the threads of the common ForkJoinPool.
+	 *
+	 * @param weighted If weighted == true use dijkstra's algorithm otherwise use
+	 *                 the unweighted shortest path algorithm.
+	 */
+	public void findAllPathsParallel(boolean weighted) {
+		findAllPaths(weighted, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Same as findAllPaths(boolean) but the single source searches are spread over
+	 * the threads of executor. The searches run on a frozen copy of this Graph,
+	 * each with its own distance, predecessor and visited buffers, and the totals
+	 * are copied back to the vertices when all of them are done. This method does
+	 * not change the current start vertex. <br>
+	 * pre: executor != null
+	 *
+	 * @param weighted If weighted == true use dijkstra's algorithm otherwise use
+	 *                 the unweighted shortest path algorithm.
+	 * @param executor Runs the searches.
+	 */
+	public void findAllPaths(boolean weighted, ExecutorService executor) {
+		CompactGraph compact = freeze();
+		compact.findAllPaths(weighted, executor);
+		copyAllPathsResults(compact);
+	}
 
-		// CS314 Students - complete this method
-		// Reset longest
+	// copy the totals and longest path found by compact.findAllPaths back to
+	// the vertices of this Graph
+	private void copyAllPathsResults(CompactGraph compact) {
+		for (Vertex v : vertexList) {
+			v.numVertexConnected = compact.getNumVertexConnected(v.getId());
+			v.totalUnweightedPathLength = compact.getTotalUnweightedPathLength(v.getId());
+			v.totalWeightedPathLength = compact.getTotalWeightedPathLength(v.getId());
+		}
 		longest = new Path();
-		// For every vertex
-		for (String s1 : vertices.keySet()) {
-			Vertex curr = vertices.get(s1);
-			// Clear the current information
-			curr.clearPathInfo();
-			// Do the appropriate search algorithm
-			if (weighted) {
-				dijkstra(s1);
-			} else {
-				findUnweightedShortestPath(s1);
-			}
-			// For every other vertex
-			for (String s2 : vertices.keySet()) {
-				if (!s1.equals(s2)) {
-					if (vertices.get(s2).weightedCostFromStartVertex != INFINITY) {
-						// Increment the number connected
-						curr.numVertexConnected++;
-						// Add the number of edges to the unweighted
-						curr.totalUnweightedPathLength += getPath(s2).getNumEdgesInPath();
-						// Add the weighted cost to the total
-						curr.totalWeightedPathLength += getPath(s2).weightedCost();
-						// Check if the path is the longest
-						// If there is a path from the current vertex to the new vertex
-						Path currPath = getPath(s2);
-						if (longest.weightedCostOfPath < currPath.weightedCostOfPath) {
-							longest = currPath;
-						}
-					}
+		for (int id : compact.getLongestPathIds()) {
+			longest.add(vertexList.get(id));
+		}
+		longest.weightedCostOfPath = compact.costOfLongestShortestPath();
+		incremental = null;
+		allPathsFound = true;
+		allPathsCurrent = true;
+	}
+
+	/**
+	 * Same as findAllPaths(boolean), but the results are then kept up to date as
+	 * this Graph changes. When an edge is added or its cost lowered only the
+	 * shortest paths that now use that edge are found again, so getAllPaths,
+	 * getDiameter and getLongestPath stay current without a full recompute. The
+	 * weighted totals may differ from a full recompute by rounding. Raising the
+	 * cost of an edge cannot be handled this way and makes the results out of date
+	 * until findAllPaths is called again, see isAllPathsCurrent.
+	 *
+	 * <br>
+	 * The cost of the shortest path between every pair of vertices is kept, so
+	 * this uses memory proportional to the number of vertices squared.
+	 *
+	 * @param weighted If weighted == true use dijkstra's algorithm otherwise use
+	 *                 the unweighted shortest path algorithm.
+	 */
+	public void findAllPathsIncremental(boolean weighted) {
+		incremental = new IncrementalAllPaths(freeze(), weighted, vertexList);
+		longest = null;
+		allPathsFound = true;
+		allPathsCurrent = true;
+	}
+
+	/**
+	 * Return true if findAllPaths has been called and its results still match
+	 * this Graph. Adding a vertex keeps them current since it has no edges. Adding
+	 * or changing an edge makes them out of date unless they were found with
+	 * findAllPathsIncremental and the change lowered the cost of the edge or added
+	 * a new one.
+	 *
+	 * @return true if the results of findAllPaths are up to date.
+	 */
+	public boolean isAllPathsCurrent() {
+		return allPathsFound && allPathsCurrent;
+	}
+
+	// Return the longest shortest path. After findAllPathsIncremental the
+	// path is only found when asked for, with one search from its source.
+	private Path longestPath() {
+		if (longest == null) {
+			longest = new Path();
+			int source = incremental.getLongestSource();
+			if (source != SearchState.NO_VERTEX) {
+				ShortestPathTree tree = snapshot().shortestPathTree(source, incremental.isWeighted());
+				for (int id : tree.getPathIds(incremental.getLongestDest())) {
+					longest.add(vertexList.get(id));
 				}
+				longest.weightedCostOfPath = incremental.getLongestCost();
 			}
 		}
+		return longest;
 	}
 
-	// helper to get path from current start vertex to dest vertex
-	private Path getPath(String dest) {
-		Path result = new Path();
-		Vertex end = vertices.get(dest);
-		result.weightedCostOfPath = end.weightedCostFromStartVertex;
-		if (end.weightedCostFromStartVertex != INFINITY) {
-			getPath(result, end);
-		}
-		return result;
+	// helper. Return true if there is a path from the current start vertex
+	// to v. Vertices added after the current tree was found are not in it.
+	private boolean reachableFromStart(Vertex v) {
+		return reachableFromStart(v.getId());
+	}
+
+	// true if there is a path from the current start to the vertex with id v.
+	// Vertices added after the search are not reachable.
+	private boolean reachableFromStart(int v) {
+		return v < currentTree.getGraph().numVertices() && currentTree.isReachable(v);
 	}
 
-	// helper to get path
-	private void getPath(Path result, Vertex end) {
-		if (end.prev != null) {
-			getPath(result, end.prev);
+	// check that findUnweightedShortestPath or dijkstra has been called
+	private void checkCurrentStart() {
+		if (currentTree == null) {
+			throw new IllegalStateException(
+					"method findUnweigthedShortesPath or dijkstra must be " + "called before calling this method.");
 		}
-		result.add(end);
 	}
 
 	/**
@@ -355,15 +789,29 @@ public class Graph {
 	 *         vertex. returns -1 if no path exists.
 	 */
 	public int getNumEdgesFromStart(String dest) {
-		if (currentStartVertexName == null) {
-			throw new IllegalStateException("method " + "findUnweigthedShortesPath or dijkstra must be "
-					+ "called before calling this method.");
-		} else if (!containsVertex(dest)) {
+		checkCurrentStart();
+		if (!containsVertex(dest)) {
 			throw new NoSuchElementException("No Vertex named " + dest + " exists in this Graph");
 		}
 
-		int result = vertices.get(dest).numEdgesFromStartVertex;
-		return (result == Integer.MAX_VALUE) ? -1 : result;
+		Vertex end = vertices.get(dest);
+		return reachableFromStart(end) ? currentTree.getNumEdges(end.getId()) : -1;
+	}
+
+	/**
+	 * Same as getNumEdgesFromStart(String) but the destination is given by id.
+	 * <br>
+	 * pre: findUnweightedShortestPath or dijkstra called. 0 <= dest <
+	 * numVertices()
+	 *
+	 * @param dest the id of the destination vertex.
+	 * @return the number of edges from the current start vertex to the destination
+	 *         vertex. returns -1 if no path exists.
+	 */
+	public int getNumEdgesFromStart(int dest) {
+		checkCurrentStart();
+		checkId(dest);
+		return reachableFromStart(dest) ? currentTree.getNumEdges(dest) : -1;
 	}
 
 	/**
@@ -379,18 +827,29 @@ public class Graph {
 	 *         the destination vertex. returns -1 if no path exists.
 	 */
 	public double getWeightedCostFromStart(String dest) {
-		if (currentStartVertexName == null) {
-			throw new IllegalStateException("method " + "findUnweigthedShortesPath or dijkstra must be "
-					+ "called before calling this method.");
-		} else if (!containsVertex(dest)) {
+		checkCurrentStart();
+		if (!containsVertex(dest)) {
 			throw new NoSuchElementException("No Vertex named " + dest + " exists in this Graph");
 		}
 
-		double result = vertices.get(dest).weightedCostFromStartVertex;
-		if (result == INFINITY) {
-			result = -1;
-		}
-		return result;
+		Vertex end = vertices.get(dest);
+		return reachableFromStart(end) ? currentTree.getWeightedCost(end.getId()) : -1;
+	}
+
+	/**
+	 * Same as getWeightedCostFromStart(String) but the destination is given by
+	 * id. <br>
+	 * pre: findUnweightedShortestPath or dijkstra called. 0 <= dest <
+	 * numVertices()
+	 *
+	 * @param dest the id of the destination vertex.
+	 * @return the total cost of the shortest path from the current start vertex to
+	 *         the destination vertex. returns -1 if no path exists.
+	 */
+	public double getWeightedCostFromStart(int dest) {
+		checkCurrentStart();
+		checkId(dest);
+		return reachableFromStart(dest) ? currentTree.getWeightedCost(dest) : -1;
 	}
 
 	/**
@@ -435,11 +894,21 @@ public class Graph {
 	 * @return the label of the current starting vertex.
 	 */
 	public String getCurrentStartVertex() {
-		if (currentStartVertexName == null) {
-			throw new IllegalStateException(
-					"method findUnweigthedShortesPath or dijkstra must be " + "called before calling this method.");
-		}
-		return this.currentStartVertexName;
+		checkCurrentStart();
+		return currentTree.getStartName();
+	}
+
+	/**
+	 * Return the result of the last call to findUnweightedShortestPath or
+	 * dijkstra. <br>
+	 * <br>
+	 * pre: findUnweightedShortestPath or dijkstra called.
+	 * 
+	 * @return the shortest paths from the current starting vertex.
+	 */
+	public ShortestPathTree getCurrentTree() {
+		checkCurrentStart();
+		return currentTree;
 	}
 
 	/**
@@ -456,10 +925,7 @@ public class Graph {
 	 *         to destName in which case an emtpy list is returned.
 	 */
 	public List<String> findPath(String destName) {
-		if (currentStartVertexName == null) {
-			throw new IllegalStateException(
-					"method findUnweigthedShortesPath or dijkstra must be " + "called before calling this method.");
-		}
+		checkCurrentStart();
 		if (destName == null) {
 			throw new IllegalArgumentException("Violation of precondition. " + "Vertex name may not be null.");
 		}
@@ -467,21 +933,78 @@ public class Graph {
 			throw new NoSuchElementException("No Vertex named " + destName + " exists in this Graph");
 		}
 
-		List<String> result = new LinkedList<>();
-		Vertex end = vertices.get(destName);
+		return findPath(vertices.get(destName).getId());
+	}
 
-		if (end.weightedCostFromStartVertex != INFINITY) {
-			findPath(result, end);
+	/**
+	 * Same as findPath(String) but the destination is given by id. <br>
+	 * pre: findUnweightedShortestPath or dijkstra called. 0 <= dest <
+	 * numVertices()
+	 *
+	 * @param dest The id of the destination vertex.
+	 * @return A list with the names of the vertices on the path from the current
+	 *         start vertex to dest, or an empty list if there is no path.
+	 */
+	public List<String> findPath(int dest) {
+		checkCurrentStart();
+		checkId(dest);
+		List<String> result = new ArrayList<>();
+		if (reachableFromStart(dest)) {
+			result = currentTree.findPath(dest);
 		}
 		return result;
 	}
 
-	// helper method to find path.
-	private void findPath(List<String> result, Vertex end) {
-		if (end.prev != null) {
-			findPath(result, end.prev);
+	/**
+	 * Alternative to findPath that writes the path from the current start vertex
+	 * to the vertex named destName into result instead of making a new List. Any
+	 * vertices already in result are removed first, so one Path can be reused for
+	 * many calls. <br>
+	 * pre: destName != null, containsVertex(destName) == true, result != null,
+	 * the startNode has been set by calling findUnweigthedShortesPath or dijkstra.
+	 *
+	 * @param destName The destination vertex
+	 * @param result   The Path to fill, start vertex first.
+	 * @return true if there is a path from the current start vertex to destName,
+	 *         false if there is not, in which case result is left empty.
+	 */
+	public boolean findPath(String destName, Path result) {
+		checkCurrentStart();
+		checkVertexName(destName);
+		if (result == null) {
+			throw new IllegalArgumentException("Violation of precondition. " + "result may not be null.");
+		}
+		return findPath(vertices.get(destName).getId(), result);
+	}
+
+	/**
+	 * Same as findPath(String, Path) but the destination is given by id. <br>
+	 * pre: findUnweightedShortestPath or dijkstra called. 0 <= dest <
+	 * numVertices(), result != null
+	 *
+	 * @param dest   The id of the destination vertex.
+	 * @param result The Path to fill, start vertex first.
+	 * @return true if there is a path from the current start vertex to dest,
+	 *         false if there is not, in which case result is left empty.
+	 */
+	public boolean findPath(int dest, Path result) {
+		checkCurrentStart();
+		checkId(dest);
+		if (result == null) {
+			throw new IllegalArgumentException("Violation of precondition. " + "result may not be null.");
 		}
-		result.add(end.getName());
+		result.clear();
+		if (!reachableFromStart(dest)) {
+			return false;
+		}
+		// follow the previous vertices back from dest, then flip the path
+		for (int v = dest; v != SearchState.NO_VERTEX; v = currentTree.getPrevious(v)) {
+			result.add(vertexList.get(v));
+		}
+		result.reverse();
+		result.dest = vertexList.get(dest);
+		result.weightedCostOfPath = currentTree.getWeightedCost(dest);
+		return true;
 	}
 
 	/**
@@ -496,21 +1019,48 @@ public class Graph {
 		Vertex end = vertices.get(destName);
 		if (end == null) {
 			throw new NoSuchElementException("No Node named " + destName + " exists in this Graph");
-		} else if (end.weightedCostFromStartVertex == INFINITY) {
+		}
+		checkCurrentStart();
+		if (!reachableFromStart(end)) {
 			System.out.println("no path to " + destName);
 		} else {
-			System.out.println("Cost is " + end.weightedCostFromStartVertex);
-			printPath(end);
+			System.out.println("Cost is " + currentTree.getWeightedCost(end.getId()));
+			for (String name : currentTree.findPath(end.getId())) {
+				System.out.println(name);
+			}
 			System.out.println();
 		}
 	}
 
-	// helper to print path
-	private void printPath(Vertex dest) {
-		if (dest.prev != null) {
-			printPath(dest.prev);
-		}
-		System.out.println(dest.getName());
+	/**
+	 * Find the diameter of this Graph, the cost of its longest shortest path,
+	 * without a search from every vertex. The result has the same cost as
+	 * costOfLongestShortestPath after findAllPaths, but usually needs only a
+	 * handful of searches. See DiameterSearch. Like shortestPathTree this method
+	 * does not change the state of this Graph.
+	 *
+	 * @param weighted If weighted == true use edge costs, otherwise every edge
+	 *                 costs 1.
+	 * @return the longest shortest path in this Graph.
+	 */
+	public Diameter findDiameter(boolean weighted) {
+		return new DiameterSearch(snapshot()).exact(weighted);
+	}
+
+	/**
+	 * Estimate the diameter of this Graph from at most numSamples randomly chosen
+	 * vertices. The diameter is between getCost() and getUpperBound() of the
+	 * result. <br>
+	 * pre: numSamples > 0
+	 *
+	 * @param weighted   If weighted == true use edge costs, otherwise every edge
+	 *                   costs 1.
+	 * @param numSamples The most vertices to search from.
+	 * @param seed       The random seed used to choose the vertices.
+	 * @return the longest shortest path found and a bound on the diameter.
+	 */
+	public Diameter approximateDiameter(boolean weighted, int numSamples, long seed) {
+		return new DiameterSearch(snapshot()).sampled(weighted, numSamples, seed);
 	}
 
 	/**
@@ -523,7 +1073,7 @@ public class Graph {
 		if (!allPathsFound) {
 			throw new IllegalStateException("The method findAllPaths must " + "be called before calling this method. ");
 		}
-		return longest.getNumEdgesInPath();
+		return longestPath().getNumEdgesInPath();
 	}
 
 	/**
@@ -538,7 +1088,7 @@ public class Graph {
 		if (!allPathsFound) {
 			throw new IllegalStateException("The method findAllPaths must be " + "called before calling this method. ");
 		}
-		return longest.weightedCostOfPath;
+		return longestPath().weightedCostOfPath;
 	}
 
 	/**
@@ -550,7 +1100,102 @@ public class Graph {
 	 *         chosen.
 	 */
 	public String getLongestPath() {
-		return longest.toString();
+		return longestPath().toString();
+	}
+
+	/**
+	 * Create a read only, compressed sparse row copy of this Graph. Vertices are
+	 * packed into int ids and the edges into flat arrays so the search algorithms
+	 * can run without chasing Vertex and Edge objects. Later changes to this Graph
+	 * are not reflected in the returned CompactGraph.
+	 * 
+	 * @return a CompactGraph with the same vertices and edges as this Graph.
+	 */
+	public CompactGraph freeze() {
+		int n = vertexList.size();
+		String[] names = new String[n];
+		int[] offsets = new int[n + 1];
+		double[] xs = null;
+		double[] ys = null;
+		for (Vertex v : vertexList) {
+			names[v.getId()] = v.getName();
+			offsets[v.getId() + 1] = offsets[v.getId()] + v.getAdjacent().size();
+			if (v.hasPosition()) {
+				if (xs == null) {
+					xs = new double[n];
+					ys = new double[n];
+					Arrays.fill(xs, Double.NaN);
+					Arrays.fill(ys, Double.NaN);
+				}
+				xs[v.getId()] = v.getX();
+				ys[v.getId()] = v.getY();
+			}
+		}
+		int[] targets = new int[offsets[n]];
+		double[] weights = new double[offsets[n]];
+		for (Vertex v : vertexList) {
+			int index = offsets[v.getId()];
+			for (Edge e : v.getAdjacent()) {
+				targets[index] = e.getDest().getId();
+				weights[index] = e.getCost();
+				index++;
+			}
+		}
+		return new CompactGraph(names, xs, ys, offsets, targets, weights);
+	}
+
+	/**
+	 * Save this Graph to the file fileName with GraphSnapshot.save, replacing
+	 * the file if it exists. The vertices, edges and positions are saved, not
+	 * the results of any search. <br>
+	 * pre: fileName != null
+	 *
+	 * @param fileName the file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public void save(String fileName) throws IOException {
+		GraphSnapshot.save(snapshot(), fileName);
+	}
+
+	/**
+	 * Load a Graph saved with save or GraphSnapshot.save. The vertices get the
+	 * same ids they had when saved, and the frozen copy the searches run on is
+	 * the loaded one, so the first search does not have to freeze this Graph. To
+	 * only run searches, GraphSnapshot.load is quicker still as it makes no
+	 * Vertex or Edge objects. <br>
+	 * pre: fileName != null
+	 *
+	 * @param fileName the file to load
+	 * @return a new Graph with the vertices and edges in the file.
+	 * @throws IOException if the file cannot be read or is not a valid snapshot
+	 */
+	public static Graph load(String fileName) throws IOException {
+		return fromCompact(GraphSnapshot.load(fileName));
+	}
+
+	// helper for loading. Return a new Graph with the vertices, positions and
+	// edges of compact, with the same ids, and compact as its frozen copy.
+	// The edges are added straight to each Vertex, without the checks and
+	// bookkeeping addEdge does for every change.
+	static Graph fromCompact(CompactGraph compact) {
+		Graph result = new Graph();
+		int n = compact.numVertices();
+		for (int v = 0; v < n; v++) {
+			Vertex vertex = new Vertex(compact.nameOf(v), v);
+			if (compact.hasPosition(v)) {
+				vertex.setPosition(compact.getX(v), compact.getY(v));
+			}
+			result.vertices.put(vertex.getName(), vertex);
+			result.vertexList.add(vertex);
+		}
+		for (int v = 0; v < n; v++) {
+			Vertex source = result.vertexList.get(v);
+			for (int e = compact.firstEdge(v); e < compact.endEdge(v); e++) {
+				source.addEdge(result.vertexList.get(compact.target(e)), compact.weight(e));
+			}
+		}
+		result.snapshot = compact;
+		return result;
 	}
 
 	// helper. If name not present create new vertex.
@@ -558,18 +1203,87 @@ public class Graph {
 	private Vertex getVertex(String name) {
 		Vertex v = vertices.get(name);
 		if (v == null) {
-			v = new Vertex(name);
+			v = new Vertex(name, vertexList.size());
 			vertices.put(name, v);
+			vertexList.add(v);
+			changed();
+			if (incremental != null) {
+				incremental.vertexAdded();
+			}
 		}
 		return v;
 	}
 
-	// reset all vertices to set new start vertex and find all paths
-	// from new start
-	private void clearAll() {
-		for (Vertex v : vertices.values()) {
-			v.reset();
+	// helper. Same as addEdge but takes vertex ids and does not check its
+	// arguments.
+	// pre: both ids are valid, cost > 0
+	private boolean addEdgeUnchecked(int source, int dest, double cost) {
+		Vertex s = vertexList.get(source);
+		Vertex d = vertexList.get(dest);
+		double oldCost = allPathsCurrent ? edgeCost(s, d) : SearchState.INFINITY;
+		beforeEdgeChanged(oldCost, cost);
+		changed();
+		boolean result = s.addEdge(d, cost);
+		edgeChanged(source, dest, oldCost, cost);
+		return result;
+	}
+
+	// the cost of the edge from s to d, INFINITY if there is none
+	private static double edgeCost(Vertex s, Vertex d) {
+		Edge e = s.getEdgeWithName(d.getName());
+		return e == null ? SearchState.INFINITY : e.getCost();
+	}
+
+	// Called before an edge cost changes from oldCost to newCost. If the
+	// change will drop the incremental results, find their longest path now,
+	// while the Graph still has the edges it was found on, so getLongestPath,
+	// getDiameter and costOfLongestShortestPath still work once they are out
+	// of date.
+	private void beforeEdgeChanged(double oldCost, double newCost) {
+		if (allPathsCurrent && incremental != null && !incremental.canApply(oldCost, newCost)) {
+			longestPath();
+		}
+	}
+
+	// Called after the edge from u to v was added or its cost changed from
+	// oldCost. Keeps the results of findAllPaths up to date if it can,
+	// otherwise marks them out of date.
+	private void edgeChanged(int u, int v, double oldCost, double newCost) {
+		if (!allPathsCurrent) {
+			return;
+		}
+		if (incremental == null) {
+			allPathsCurrent = false;
+			return;
+		}
+		if (incremental.edgeChanged(u, v, oldCost, newCost)) {
+			// found again when next asked for, in case the new edge gives a
+			// different path of the same cost
+			longest = null;
+		} else {
+			allPathsCurrent = false;
+			incremental = null;
+		}
+	}
+
+	// Called whenever this Graph changes. Drops the frozen copy and moves
+	// to a new version so cached results are no longer used.
+	private void changed() {
+		snapshot = null;
+		version++;
+	}
+
+	// Return a frozen copy of this Graph to search, reusing the last one
+	// made if the Graph has not changed since.
+	private CompactGraph snapshot() {
+		CompactGraph result = snapshot;
+		if (result == null) {
+			result = freeze();
+			snapshot = result;
+			// after publishing, so a setMetrics call meanwhile is not lost
+			result.setMetrics(metrics);
 		}
+		return result;
 	}
 
 	/**
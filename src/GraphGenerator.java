@@ -0,0 +1,172 @@
+import java.util.Random;
+
+/**
+ * Makes synthetic graphs for testing and benchmarking. Every generator takes a
+ * seed, so the same arguments always give the same Graph. Vertices are named v0,
+ * v1, ... in order and edge costs are whole numbers from 1 to MAX_COST. All the
+ * graphs are directed; the undirected shapes (grid, power law) add an edge in
+ * each direction.
+ */
+public class GraphGenerator {
+
+	/**
+	 * The largest edge cost the generators use.
+	 */
+	public static final int MAX_COST = 100;
+
+	private GraphGenerator() {
+	}
+
+	/**
+	 * Make a random sparse graph. Each vertex gets avgDegree edges to vertices
+	 * picked uniformly at random. <br>
+	 * pre: numVertices > 0, avgDegree >= 0
+	 *
+	 * @param numVertices the number of vertices
+	 * @param avgDegree   the number of edges leaving each vertex
+	 * @param seed        the random seed
+	 * @return a new random Graph
+	 */
+	public static Graph randomSparse(int numVertices, int avgDegree, long seed) {
+		checkSize(numVertices);
+		Random rand = new Random(seed);
+		Graph result = makeVertices(numVertices);
+		for (int v = 0; v < numVertices; v++) {
+			for (int i = 0; i < avgDegree; i++) {
+				result.addEdge(name(v), name(rand.nextInt(numVertices)), cost(rand));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Make a width by height grid where each vertex is joined to the vertices
+	 * above, below, left and right of it. Each vertex is given its grid position
+	 * scaled by spacing, and every edge costs at least its length, so
+	 * shortestPathAStar can be used on the result. <br>
+	 * pre: width > 0, height > 0
+	 *
+	 * @param width  the number of columns
+	 * @param height the number of rows
+	 * @param seed   the random seed
+	 * @return a new grid Graph
+	 */
+	public static Graph grid(int width, int height, long seed) {
+		checkSize(width);
+		checkSize(height);
+		final int spacing = 10;
+		Random rand = new Random(seed);
+		Graph result = makeVertices(width * height);
+		for (int row = 0; row < height; row++) {
+			for (int col = 0; col < width; col++) {
+				int v = row * width + col;
+				result.setPosition(name(v), col * spacing, row * spacing);
+				if (col + 1 < width) {
+					addBothWays(result, v, v + 1, spacing + rand.nextInt(MAX_COST));
+				}
+				if (row + 1 < height) {
+					addBothWays(result, v, v + width, spacing + rand.nextInt(MAX_COST));
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Make a scale free graph by preferential attachment (Barabasi-Albert). Each
+	 * new vertex is joined to edgesPerVertex existing vertices picked with
+	 * probability proportional to their degree, which gives a few very high
+	 * degree hubs and a small diameter. <br>
+	 * pre: numVertices > 0, edgesPerVertex > 0
+	 *
+	 * @param numVertices    the number of vertices
+	 * @param edgesPerVertex the number of vertices each new vertex joins to
+	 * @param seed           the random seed
+	 * @return a new power law Graph
+	 */
+	public static Graph powerLaw(int numVertices, int edgesPerVertex, long seed) {
+		checkSize(numVertices);
+		checkSize(edgesPerVertex);
+		Random rand = new Random(seed);
+		Graph result = makeVertices(numVertices);
+		// every edge adds both of its ends to this list, so picking an entry
+		// uniformly picks a vertex with probability proportional to degree
+		int[] ends = new int[2 * numVertices * edgesPerVertex + 2];
+		int numEnds = 0;
+		ends[numEnds++] = 0;
+		for (int v = 1; v < numVertices; v++) {
+			int links = Math.min(v, edgesPerVertex);
+			for (int i = 0; i < links; i++) {
+				int other = ends[rand.nextInt(numEnds)];
+				addBothWays(result, v, other, cost(rand));
+				ends[numEnds++] = other;
+			}
+			for (int i = 0; i < links; i++) {
+				ends[numEnds++] = v;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Make a dense random graph where each possible edge is present with the
+	 * given probability. <br>
+	 * pre: numVertices > 0, 0 <= density <= 1
+	 *
+	 * @param numVertices the number of vertices
+	 * @param density     the chance of each edge being present
+	 * @param seed        the random seed
+	 * @return a new dense Graph
+	 */
+	public static Graph dense(int numVertices, double density, long seed) {
+		checkSize(numVertices);
+		if (density < 0 || density > 1) {
+			throw new IllegalArgumentException("Violation of precondition. " + "density must be 0 to 1. " + density);
+		}
+		Random rand = new Random(seed);
+		Graph result = makeVertices(numVertices);
+		for (int v = 0; v < numVertices; v++) {
+			for (int w = 0; w < numVertices; w++) {
+				if (v != w && rand.nextDouble() < density) {
+					result.addEdge(name(v), name(w), cost(rand));
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Return the name the generators give the vertex with the given number.
+	 *
+	 * @param v the number of the vertex
+	 * @return the name of the vertex
+	 */
+	public static String name(int v) {
+		return "v" + v;
+	}
+
+	// make a Graph with vertices v0 to v(numVertices - 1) and no edges,
+	// so vertex ids match the numbers in the names
+	private static Graph makeVertices(int numVertices) {
+		Graph result = new Graph();
+		for (int v = 0; v < numVertices; v++) {
+			result.addVertex(name(v));
+		}
+		return result;
+	}
+
+	private static void addBothWays(Graph g, int v, int w, double cost) {
+		g.addEdge(name(v), name(w), cost);
+		g.addEdge(name(w), name(v), cost);
+	}
+
+	private static double cost(Random rand) {
+		return 1 + rand.nextInt(MAX_COST);
+	}
+
+	private static void checkSize(int size) {
+		if (size <= 0) {
+			throw new IllegalArgumentException("Violation of precondition. " + "size must be > 0. " + size);
+		}
+	}
+}
@@ -0,0 +1,328 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Saves a CompactGraph to a binary file and loads it back. The file holds the
+ * arrays of the graph as they are in memory, so loading does no parsing: the
+ * file is memory mapped and each array is copied out of the mapping in bulk,
+ * and the graph can be searched as soon as load returns.
+ *
+ * The file is little endian. It starts with a HEADER_SIZE byte header: the
+ * MAGIC number, the format VERSION, the number of vertices, flags, the number
+ * of edges, the length in bytes of the names and a CRC32C checksum of the rest
+ * of the file. Then come the offsets, targets and weights of the edges in the
+ * layout CompactGraph uses, the x and y positions if the graph has any, the
+ * offset of each name in the names and the names in UTF-8. A file that was cut
+ * short or changed after it was saved fails the checksum.
+ */
+public class GraphSnapshot {
+
+	/** The first four bytes of every snapshot, "CSRG". */
+	public static final int MAGIC = 0x47525343;
+
+	/** The format version written by save. */
+	public static final int VERSION = 1;
+
+	// the header is written last, once the checksum of the rest is known
+	private static final int HEADER_SIZE = 32;
+
+	// set in the flags if the positions are in the file
+	private static final int HAS_POSITIONS = 1;
+
+	// most bytes mapped or buffered at once. A multiple of 8 so no value is
+	// split across two pieces.
+	private static final int WINDOW_SIZE = 1 << 26;
+
+	private GraphSnapshot() {
+	}
+
+	/**
+	 * Write graph to the file fileName, replacing it if it exists. <br>
+	 * pre: graph != null, fileName != null
+	 *
+	 * @param graph    the graph to save
+	 * @param fileName the file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void save(CompactGraph graph, String fileName) throws IOException {
+		if (graph == null || fileName == null) {
+			throw new IllegalArgumentException(
+					"Violation of precondition. " + "graph and fileName may not be null.");
+		}
+		int n = graph.numVertices();
+		int m = graph.numEdges();
+		boolean hasPositions = false;
+		for (int v = 0; v < n && !hasPositions; v++) {
+			hasPositions = graph.hasPosition(v);
+		}
+		byte[][] names = new byte[n][];
+		long nameBytes = 0;
+		for (int v = 0; v < n; v++) {
+			names[v] = graph.nameOf(v).getBytes(StandardCharsets.UTF_8);
+			nameBytes += names[v].length;
+		}
+		if (nameBytes > Integer.MAX_VALUE) {
+			throw new IOException("The names of the vertices are too long to save.");
+		}
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			Writer out = new Writer(channel);
+			for (int v = 0; v <= n; v++) {
+				out.putInt(v < n ? graph.firstEdge(v) : m);
+			}
+			for (int e = 0; e < m; e++) {
+				out.putInt(graph.target(e));
+			}
+			for (int e = 0; e < m; e++) {
+				out.putDouble(graph.weight(e));
+			}
+			if (hasPositions) {
+				for (int v = 0; v < n; v++) {
+					out.putDouble(graph.hasPosition(v) ? graph.getX(v) : Double.NaN);
+				}
+				for (int v = 0; v < n; v++) {
+					out.putDouble(graph.hasPosition(v) ? graph.getY(v) : Double.NaN);
+				}
+			}
+			int offset = 0;
+			for (int v = 0; v <= n; v++) {
+				out.putInt(offset);
+				offset += v < n ? names[v].length : 0;
+			}
+			for (int v = 0; v < n; v++) {
+				out.putBytes(names[v]);
+			}
+			out.flush();
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC);
+			header.putInt(VERSION);
+			header.putInt(n);
+			header.putInt(hasPositions ? HAS_POSITIONS : 0);
+			header.putInt(m);
+			header.putInt((int) nameBytes);
+			header.putLong(out.crc.getValue());
+			header.flip();
+			while (header.hasRemaining()) {
+				channel.write(header, header.position());
+			}
+		}
+	}
+
+	/**
+	 * Return true if the file fileName starts like a snapshot written by save,
+	 * so it can be told apart from an edge list. <br>
+	 * pre: fileName != null
+	 *
+	 * @param fileName the file to check
+	 * @return true if the file looks like a snapshot.
+	 * @throws IOException if the file cannot be read
+	 */
+	public static boolean isSnapshot(String fileName) throws IOException {
+		if (fileName == null) {
+			throw new IllegalArgumentException("Violation of precondition. " + "fileName may not be null.");
+		}
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			while (magic.hasRemaining()) {
+				if (channel.read(magic) < 0) {
+					return false;
+				}
+			}
+			return magic.getInt(0) == MAGIC;
+		}
+	}
+
+	/**
+	 * Load the graph saved in the file fileName, checking it against its
+	 * checksum. <br>
+	 * pre: fileName != null
+	 *
+	 * @param fileName the file to load
+	 * @return the graph in the file.
+	 * @throws IOException if the file cannot be read, is not a snapshot, was
+	 *                     saved by a newer version or is corrupt
+	 */
+	public static CompactGraph load(String fileName) throws IOException {
+		if (fileName == null) {
+			throw new IllegalArgumentException("Violation of precondition. " + "fileName may not be null.");
+		}
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < HEADER_SIZE) {
+				throw new IOException(fileName + " is not a graph snapshot.");
+			}
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+					.order(ByteOrder.LITTLE_ENDIAN);
+			if (header.getInt() != MAGIC) {
+				throw new IOException(fileName + " is not a graph snapshot.");
+			}
+			int version = header.getInt();
+			if (version != VERSION) {
+				throw new IOException(fileName + " is snapshot version " + version + ", only version " + VERSION
+						+ " can be read.");
+			}
+			int n = header.getInt();
+			boolean hasPositions = (header.getInt() & HAS_POSITIONS) != 0;
+			int m = header.getInt();
+			int nameBytes = header.getInt();
+			long checksum = header.getLong();
+			long expected = HEADER_SIZE + Integer.BYTES * (2L * (n + 1) + m) + Double.BYTES * (long) m
+					+ (hasPositions ? 2L * Double.BYTES * n : 0) + nameBytes;
+			if (n < 0 || m < 0 || nameBytes < 0 || size != expected) {
+				throw new IOException(fileName + " is corrupt: it should be " + expected + " bytes long.");
+			}
+
+			Reader in = new Reader(channel, HEADER_SIZE);
+			int[] offsets = in.getInts(n + 1);
+			int[] targets = in.getInts(m);
+			double[] weights = in.getDoubles(m);
+			double[] xs = hasPositions ? in.getDoubles(n) : null;
+			double[] ys = hasPositions ? in.getDoubles(n) : null;
+			int[] nameOffsets = in.getInts(n + 1);
+			byte[] names = in.getBytes(nameBytes);
+			if (in.crc.getValue() != checksum) {
+				throw new IOException(fileName + " is corrupt: its checksum does not match.");
+			}
+			checkLayout(fileName, offsets, targets, nameOffsets, names.length);
+			String[] result = new String[n];
+			for (int v = 0; v < n; v++) {
+				result[v] = new String(names, nameOffsets[v], nameOffsets[v + 1] - nameOffsets[v],
+						StandardCharsets.UTF_8);
+			}
+			return new CompactGraph(result, xs, ys, offsets, targets, weights);
+		}
+	}
+
+	// The checksum only shows the file is as it was saved. Make sure the
+	// offsets and targets are ones the searches can follow so a bad file
+	// fails here and not in the middle of a search.
+	private static void checkLayout(String fileName, int[] offsets, int[] targets, int[] nameOffsets,
+			int nameBytes) throws IOException {
+		int n = offsets.length - 1;
+		boolean ok = offsets[0] == 0 && offsets[n] == targets.length && nameOffsets[0] == 0
+				&& nameOffsets[n] == nameBytes;
+		for (int v = 0; v < n && ok; v++) {
+			ok = offsets[v] <= offsets[v + 1] && nameOffsets[v] <= nameOffsets[v + 1];
+		}
+		for (int e = 0; e < targets.length && ok; e++) {
+			ok = targets[e] >= 0 && targets[e] < n;
+		}
+		if (!ok) {
+			throw new IOException(fileName + " is corrupt: its edges do not fit its vertices.");
+		}
+	}
+
+	// Buffers values in little endian order and writes them to the channel
+	// after the header, adding each byte written to the checksum.
+	private static class Writer {
+
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(WINDOW_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		private final CRC32C crc = new CRC32C();
+		private long position = HEADER_SIZE;
+
+		private Writer(FileChannel channel) {
+			this.channel = channel;
+		}
+
+		private void putInt(int value) throws IOException {
+			if (buffer.remaining() < Integer.BYTES) {
+				flush();
+			}
+			buffer.putInt(value);
+		}
+
+		private void putDouble(double value) throws IOException {
+			if (buffer.remaining() < Double.BYTES) {
+				flush();
+			}
+			buffer.putDouble(value);
+		}
+
+		private void putBytes(byte[] bytes) throws IOException {
+			int i = 0;
+			while (i < bytes.length) {
+				if (!buffer.hasRemaining()) {
+					flush();
+				}
+				int length = Math.min(buffer.remaining(), bytes.length - i);
+				buffer.put(bytes, i, length);
+				i += length;
+			}
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			crc.update(buffer.duplicate());
+			while (buffer.hasRemaining()) {
+				position += channel.write(buffer, position);
+			}
+			buffer.clear();
+		}
+	}
+
+	// Copies arrays out of the channel from a starting position, mapping at
+	// most WINDOW_SIZE bytes at a time and adding each byte read to the
+	// checksum.
+	private static class Reader {
+
+		private final FileChannel channel;
+		private final CRC32C crc = new CRC32C();
+		private long position;
+
+		private Reader(FileChannel channel, long position) {
+			this.channel = channel;
+			this.position = position;
+		}
+
+		private int[] getInts(int count) throws IOException {
+			int[] result = new int[count];
+			int done = 0;
+			while (done < count) {
+				int length = Math.min(count - done, WINDOW_SIZE / Integer.BYTES);
+				next(length * Integer.BYTES).asIntBuffer().get(result, done, length);
+				done += length;
+			}
+			return result;
+		}
+
+		private double[] getDoubles(int count) throws IOException {
+			double[] result = new double[count];
+			int done = 0;
+			while (done < count) {
+				int length = Math.min(count - done, WINDOW_SIZE / Double.BYTES);
+				next(length * Double.BYTES).asDoubleBuffer().get(result, done, length);
+				done += length;
+			}
+			return result;
+		}
+
+		private byte[] getBytes(int count) throws IOException {
+			byte[] result = new byte[count];
+			int done = 0;
+			while (done < count) {
+				int length = Math.min(count - done, WINDOW_SIZE);
+				next(length).get(result, done, length);
+				done += length;
+			}
+			return result;
+		}
+
+		// map the next numBytes bytes and add them to the checksum
+		private ByteBuffer next(int numBytes) throws IOException {
+			MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, numBytes);
+			window.order(ByteOrder.LITTLE_ENDIAN);
+			crc.update(window.duplicate());
+			position += numBytes;
+			return window;
+		}
+	}
+}
@@ -0,0 +1,239 @@
+import java.util.Arrays;
+import java.util.List;
+
+// Keeps the results of findAllPaths for a Graph up to date as edges are added
+// or made cheaper, without searching again from every vertex. The cost and
+// number of edges of the shortest path between every pair of vertices is
+// kept, so this uses memory proportional to the number of vertices squared.
+//
+// When an edge u -> v is added or its cost lowered, only the sources whose
+// path to v gets shorter through u need repairing, and for each of those only
+// the vertices whose paths now run through the new edge. They are found with
+// a Dijkstra search that starts at v and stops at vertices that do not
+// improve. The per vertex totals in the Vertex objects are adjusted as costs
+// change. Raising the cost of an edge can make paths longer, which this cannot
+// repair; edgeChanged returns false and the Graph marks its results stale.
+class IncrementalAllPaths {
+
+	private static final double INFINITY = SearchState.INFINITY;
+
+	private static final int NO_VERTEX = SearchState.NO_VERTEX;
+
+	private final boolean weighted;
+
+	// the vertices of the Graph, indexed by id. Shared with the Graph.
+	private final List<Vertex> vertices;
+	private int numVertices;
+
+	// cost[s][v] and hops[s][v] describe the shortest path from s to v.
+	// Rows are longer than numVertices so vertices can be added cheaply.
+	private double[][] cost;
+	private int[][] hops;
+
+	// farthest[s] is the first vertex by id with the most costly path from s,
+	// the one findAllPaths picks for the longest path
+	private int[] farthest;
+	private int longestSource;
+
+	// work space for the repair searches
+	private IndexedMinHeap heap;
+
+	// pre: compact is a frozen copy of the Graph vertices came from
+	IncrementalAllPaths(CompactGraph compact, boolean weighted, List<Vertex> vertices) {
+		this.weighted = weighted;
+		this.vertices = vertices;
+		numVertices = compact.numVertices();
+		int capacity = Math.max(1, numVertices);
+		cost = new double[capacity][];
+		hops = new int[capacity][];
+		farthest = new int[capacity];
+		heap = new IndexedMinHeap(capacity);
+		SearchState state = new SearchState(numVertices);
+		for (int s = 0; s < numVertices; s++) {
+			if (weighted) {
+				compact.dijkstra(s, state);
+			} else {
+				compact.findUnweightedShortestPath(s, state);
+			}
+			cost[s] = Arrays.copyOf(state.cost, capacity);
+			hops[s] = Arrays.copyOf(state.hops, capacity);
+			Vertex source = vertices.get(s);
+			source.clearPathInfo();
+			for (int v = 0; v < numVertices; v++) {
+				if (v != s && cost[s][v] != INFINITY) {
+					source.numVertexConnected++;
+					source.totalUnweightedPathLength += hops[s][v];
+					source.totalWeightedPathLength += cost[s][v];
+				}
+			}
+			findFarthest(s);
+		}
+		findLongest();
+	}
+
+	boolean isWeighted() {
+		return weighted;
+	}
+
+	// The source of the longest shortest path, or NO_VERTEX if no vertex can
+	// reach another.
+	int getLongestSource() {
+		return longestSource;
+	}
+
+	// The destination of the longest shortest path, or NO_VERTEX if none.
+	int getLongestDest() {
+		return longestSource == NO_VERTEX ? NO_VERTEX : farthest[longestSource];
+	}
+
+	// The cost of the longest shortest path, 0 if there is none.
+	double getLongestCost() {
+		return longestSource == NO_VERTEX ? 0 : cost[longestSource][farthest[longestSource]];
+	}
+
+	// Called after a vertex is added to the Graph. It has no edges yet so no
+	// other path changes.
+	void vertexAdded() {
+		if (numVertices == cost.length) {
+			grow(cost.length * 2);
+		}
+		int v = numVertices++;
+		double[] row = new double[cost.length];
+		Arrays.fill(row, INFINITY);
+		row[v] = 0;
+		cost[v] = row;
+		hops[v] = new int[cost.length];
+		farthest[v] = NO_VERTEX;
+	}
+
+	// Return true if the results can be kept up to date when an edge cost
+	// changes from oldCost (INFINITY if there was no edge) to newCost. Only
+	// raising the cost of an edge in a weighted graph cannot be handled.
+	boolean canApply(double oldCost, double newCost) {
+		return !weighted || newCost <= oldCost;
+	}
+
+	// Called after the edge u -> v was added or its cost changed from oldCost
+	// (INFINITY if there was no edge) to newCost. Return true if the results
+	// were updated, false if they can no longer be kept up to date.
+	boolean edgeChanged(int u, int v, double oldCost, double newCost) {
+		if (!canApply(oldCost, newCost)) {
+			return false;
+		}
+		if (!weighted) {
+			// only a new edge changes unweighted paths
+			oldCost = oldCost == INFINITY ? INFINITY : 1;
+			newCost = 1;
+		}
+		if (newCost < oldCost) {
+			boolean longestMayChange = false;
+			for (int s = 0; s < numVertices; s++) {
+				double[] row = cost[s];
+				if (row[u] != INFINITY && row[u] + newCost < row[v]) {
+					repair(s, u, v, newCost);
+					longestMayChange = true;
+				}
+			}
+			if (longestMayChange) {
+				findLongest();
+			}
+		}
+		return true;
+	}
+
+	// Lower the costs from s that now go through the edge u -> v.
+	private void repair(int s, int u, int v, double edgeCost) {
+		double[] row = cost[s];
+		int[] hopRow = hops[s];
+		Vertex source = vertices.get(s);
+		// Set once the farthest vertex gets cheaper, after which any vertex
+		// may be the farthest and the row is scanned when the repair is done.
+		boolean farthestLowered = lower(source, v, row[u] + edgeCost, hopRow[u] + 1, false);
+		heap.clear();
+		heap.insert(v, row[v]);
+		while (!heap.isEmpty()) {
+			int curr = heap.removeMin();
+			double currCost = row[curr];
+			int nextHops = hopRow[curr] + 1;
+			for (Edge e : vertices.get(curr).getAdjacent()) {
+				int next = e.getDest().getId();
+				double newCost = currCost + (weighted ? e.getCost() : 1);
+				if (newCost < row[next]) {
+					farthestLowered = lower(source, next, newCost, nextHops, farthestLowered);
+					heap.insertOrDecrease(next, newCost);
+				}
+			}
+		}
+		if (farthestLowered) {
+			findFarthest(s);
+		}
+	}
+
+	// Set the path from source to v to newCost and newHops and adjust the
+	// totals of source to match. Return true if the farthest vertex from
+	// source has been lowered, so it must be found again.
+	private boolean lower(Vertex source, int v, double newCost, int newHops, boolean farthestLowered) {
+		int s = source.getId();
+		double[] row = cost[s];
+		double oldCost = row[v];
+		if (oldCost == INFINITY) {
+			source.numVertexConnected++;
+			source.totalUnweightedPathLength += newHops;
+			source.totalWeightedPathLength += newCost;
+		} else {
+			source.totalUnweightedPathLength += newHops - hops[s][v];
+			source.totalWeightedPathLength += newCost - oldCost;
+		}
+		row[v] = newCost;
+		hops[s][v] = newHops;
+		int far = farthest[s];
+		if (farthestLowered || v == far) {
+			return true;
+		}
+		// A vertex that was reachable only got cheaper, so only a newly
+		// reached one can become the farthest.
+		if (oldCost == INFINITY
+				&& (far == NO_VERTEX || row[far] < newCost || (row[far] == newCost && v < far))) {
+			farthest[s] = v;
+		}
+		return false;
+	}
+
+	// Pick the farthest vertex from s the same way findAllPaths does.
+	private void findFarthest(int s) {
+		double[] row = cost[s];
+		int result = NO_VERTEX;
+		for (int dest = 0; dest < numVertices; dest++) {
+			if (dest != s && row[dest] != INFINITY && (result == NO_VERTEX || row[result] < row[dest])) {
+				result = dest;
+			}
+		}
+		farthest[s] = result;
+	}
+
+	// Pick the source of the longest path the same way findAllPaths does.
+	private void findLongest() {
+		longestSource = NO_VERTEX;
+		double longestCost = 0;
+		for (int s = 0; s < numVertices; s++) {
+			if (farthest[s] != NO_VERTEX && longestCost < cost[s][farthest[s]]) {
+				longestCost = cost[s][farthest[s]];
+				longestSource = s;
+			}
+		}
+	}
+
+	// make room for newCapacity vertices
+	private void grow(int newCapacity) {
+		int oldCapacity = cost.length;
+		cost = Arrays.copyOf(cost, newCapacity);
+		hops = Arrays.copyOf(hops, newCapacity);
+		farthest = Arrays.copyOf(farthest, newCapacity);
+		for (int s = 0; s < numVertices; s++) {
+			cost[s] = Arrays.copyOf(cost[s], newCapacity);
+			Arrays.fill(cost[s], oldCapacity, newCapacity, INFINITY);
+			hops[s] = Arrays.copyOf(hops[s], newCapacity);
+		}
+		heap = new IndexedMinHeap(newCapacity);
+	}
+}
@@ -0,0 +1,159 @@
+import java.util.NoSuchElementException;
+
+// A 4-ary min heap of int ids 0 to capacity - 1 keyed by doubles.
+// Each id is in the heap at most once and its position is tracked so
+// the key can be decreased in place. Used by the shortest path
+// algorithms instead of a PriorityQueue of Path objects so that a
+// relaxation allocates nothing and the heap never grows past the
+// number of vertices. Four children per node makes the heap shallower
+// than a binary heap, which helps decreaseKey, and the children of a
+// node sit next to each other in the array.
+public class IndexedMinHeap {
+
+	private static final int NOT_IN_HEAP = -1;
+
+	private static final int ARITY = 4;
+
+	// heap[i] is the id stored at position i
+	private int[] heap;
+	// pos[id] is the position of id in heap or NOT_IN_HEAP
+	private int[] pos;
+	// keys[id] is the current key of id
+	private double[] keys;
+	private int size;
+
+	public IndexedMinHeap(int capacity) {
+		heap = new int[capacity];
+		pos = new int[capacity];
+		keys = new double[capacity];
+		for (int i = 0; i < capacity; i++) {
+			pos[i] = NOT_IN_HEAP;
+		}
+	}
+
+	// return the largest id + 1 this heap can hold
+	public int capacity() {
+		return pos.length;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean contains(int id) {
+		return pos[id] != NOT_IN_HEAP;
+	}
+
+	// remove all ids. Only touches the ids currently in the heap.
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			pos[heap[i]] = NOT_IN_HEAP;
+		}
+		size = 0;
+	}
+
+	// pre: !contains(id)
+	public void insert(int id, double key) {
+		if (contains(id)) {
+			throw new IllegalArgumentException("Violation of precondition. " + id + " is already in the heap.");
+		}
+		keys[id] = key;
+		heap[size] = id;
+		pos[id] = size;
+		size++;
+		siftUp(size - 1);
+	}
+
+	// pre: contains(id), key <= current key of id
+	public void decreaseKey(int id, double key) {
+		if (!contains(id)) {
+			throw new NoSuchElementException(id + " is not in the heap.");
+		}
+		keys[id] = key;
+		siftUp(pos[id]);
+	}
+
+	// insert id if it is not present, otherwise lower its key
+	public void insertOrDecrease(int id, double key) {
+		if (contains(id)) {
+			decreaseKey(id, key);
+		} else {
+			insert(id, key);
+		}
+	}
+
+	public double minKey() {
+		if (size == 0) {
+			throw new NoSuchElementException("The heap is empty.");
+		}
+		return keys[heap[0]];
+	}
+
+	// remove and return the id with the smallest key
+	public int removeMin() {
+		if (size == 0) {
+			throw new NoSuchElementException("The heap is empty.");
+		}
+		int result = heap[0];
+		size--;
+		pos[result] = NOT_IN_HEAP;
+		if (size > 0) {
+			heap[0] = heap[size];
+			pos[heap[0]] = 0;
+			siftDown(0);
+		}
+		return result;
+	}
+
+	private void siftUp(int i) {
+		int id = heap[i];
+		double key = keys[id];
+		while (i > 0) {
+			int parent = (i - 1) / ARITY;
+			int parentId = heap[parent];
+			if (keys[parentId] <= key) {
+				break;
+			}
+			heap[i] = parentId;
+			pos[parentId] = i;
+			i = parent;
+		}
+		heap[i] = id;
+		pos[id] = i;
+	}
+
+	private void siftDown(int i) {
+		int id = heap[i];
+		double key = keys[id];
+		while (true) {
+			int firstChild = ARITY * i + 1;
+			if (firstChild >= size) {
+				break;
+			}
+			// find the child with the smallest key
+			int child = firstChild;
+			double childKey = keys[heap[firstChild]];
+			int lastChild = Math.min(firstChild + ARITY, size);
+			for (int c = firstChild + 1; c < lastChild; c++) {
+				double k = keys[heap[c]];
+				if (k < childKey) {
+					child = c;
+					childKey = k;
+				}
+			}
+			int childId = heap[child];
+			if (key <= childKey) {
+				break;
+			}
+			heap[i] = childId;
+			pos[childId] = i;
+			i = child;
+		}
+		heap[i] = id;
+		pos[id] = i;
+	}
+}
@@ -0,0 +1,138 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how long calls take, in nanoseconds, in buckets that grow with the
+ * time: each power of two is split into SUB_BUCKETS buckets, so a percentile is
+ * within an eighth of the true time however long the calls are. Recording is a
+ * few atomic adds and creates no objects, so many threads may record at once.
+ */
+public class LatencyHistogram {
+
+	// each power of two is split into 1 << SUB_BITS buckets
+	private static final int SUB_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	// times below SUB_BUCKETS nanoseconds get a bucket each
+	private static final int NUM_BUCKETS = (Long.SIZE - SUB_BITS + 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder total = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * Add a call that took the given time. Negative times count as 0.
+	 *
+	 * @param nanos how long the call took.
+	 */
+	public void record(long nanos) {
+		nanos = Math.max(0, nanos);
+		counts.incrementAndGet(bucketOf(nanos));
+		count.increment();
+		total.add(nanos);
+		max.accumulate(nanos);
+	}
+
+	/**
+	 * Return the number of calls recorded.
+	 *
+	 * @return the number of calls recorded.
+	 */
+	public long count() {
+		return count.sum();
+	}
+
+	/**
+	 * Return the mean time of the calls recorded, or 0 if there are none.
+	 *
+	 * @return the mean time in nanoseconds.
+	 */
+	public double mean() {
+		long n = count.sum();
+		return n == 0 ? 0 : (double) total.sum() / n;
+	}
+
+	/**
+	 * Return the longest time recorded, or 0 if there are none.
+	 *
+	 * @return the longest time in nanoseconds.
+	 */
+	public long max() {
+		return max.get();
+	}
+
+	/**
+	 * Return a time that at least fraction of the calls recorded took no longer
+	 * than: the top of the bucket holding that call, but never more than max().
+	 * Returns 0 if no calls are recorded. <br>
+	 * pre: 0 <= fraction <= 1
+	 *
+	 * @param fraction the part of the calls, such as 0.99.
+	 * @return the time in nanoseconds.
+	 */
+	public long percentile(double fraction) {
+		if (!(fraction >= 0 && fraction <= 1)) {
+			throw new IllegalArgumentException(
+					"Violation of precondition. " + "fraction must be between 0 and 1. " + fraction);
+		}
+		long n = 0;
+		for (int b = 0; b < NUM_BUCKETS; b++) {
+			n += counts.get(b);
+		}
+		long rank = Math.max(1, (long) Math.ceil(fraction * n));
+		long seen = 0;
+		for (int b = 0; b < NUM_BUCKETS; b++) {
+			seen += counts.get(b);
+			if (seen >= rank) {
+				return Math.min(max(), topOf(b));
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Forget all the calls recorded. Calls recorded at the same time may be
+	 * partly kept.
+	 */
+	public void reset() {
+		for (int b = 0; b < NUM_BUCKETS; b++) {
+			counts.set(b, 0);
+		}
+		count.reset();
+		total.reset();
+		max.reset();
+	}
+
+	/**
+	 * Return the count, mean, median, 99th percentile and max, in microseconds.
+	 *
+	 * @return a one line summary of this histogram.
+	 */
+	public String toString() {
+		return String.format("n=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus", count(), mean() / 1e3,
+				percentile(0.5) / 1e3, percentile(0.99) / 1e3, max() / 1e3);
+	}
+
+	// The bucket of nanos. Below SUB_BUCKETS each value has its own bucket,
+	// above it the top SUB_BITS + 1 bits pick the bucket.
+	private static int bucketOf(long nanos) {
+		if (nanos < SUB_BUCKETS) {
+			return (int) nanos;
+		}
+		int shift = Long.SIZE - SUB_BITS - 1 - Long.numberOfLeadingZeros(nanos);
+		return (shift + 1) * SUB_BUCKETS + (int) ((nanos >>> shift) - SUB_BUCKETS);
+	}
+
+	// the largest value that goes in bucket b
+	private static long topOf(int b) {
+		if (b < SUB_BUCKETS) {
+			return b;
+		}
+		int shift = b / SUB_BUCKETS - 1;
+		long first = (long) (SUB_BUCKETS + b % SUB_BUCKETS) << shift;
+		long width = 1L << shift;
+		return first > Long.MAX_VALUE - width ? Long.MAX_VALUE : first + width - 1;
+	}
+}
@@ -1,44 +1,72 @@
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Arrays;
 
 
 // Models a path between vertices.
 	// Best not to try and store all paths for any but small graphs.
-	// Used in the Dijkstra method and to track the longest shortest path
+	// Used to track the longest shortest path
 	// in a graph when get all paths is called.
-	// We store Path objects in the PriorityQueue instead of
-	// Vertex objects because a given Vertex may have several paths
-	// to it and altering the Vertex may disrupt the PriorityQueue that
-	// stores them.
+	// The vertices are kept in an array that grows as needed, so a Path can
+	// be cleared and filled again without making garbage.
 
 public class Path implements Comparable<Path> {
 
-		public List<Vertex> verticesInPath; // not necessary for temporary paths in Dijkstra's
+		private static final int DEFAULT_CAPACITY = 8;
+
+		private Vertex[] verticesInPath;
+		private int numVertices;
 		public double weightedCostOfPath;
 		public Vertex dest;
 
 		public Path() {
-			verticesInPath = new LinkedList<>();
+			verticesInPath = new Vertex[DEFAULT_CAPACITY];
 		}
 
 		public Path(Vertex v, double c) {
+			this();
 			dest = v;
 			weightedCostOfPath = c;
-			verticesInPath = new LinkedList<Vertex>();
 		}
 
 		public void add(Vertex v) {
-			verticesInPath.add(v);
+			if (numVertices == verticesInPath.length) {
+				verticesInPath = Arrays.copyOf(verticesInPath, numVertices * 2);
+			}
+			verticesInPath[numVertices++] = v;
+		}
+
+		// remove all vertices so this Path can be reused. The array is kept.
+		public void clear() {
+			Arrays.fill(verticesInPath, 0, numVertices, null);
+			numVertices = 0;
+			weightedCostOfPath = 0;
+			dest = null;
+		}
+
+		// reverse the order of the vertices in this Path
+		public void reverse() {
+			for (int i = 0, j = numVertices - 1; i < j; i++, j--) {
+				Vertex temp = verticesInPath[i];
+				verticesInPath[i] = verticesInPath[j];
+				verticesInPath[j] = temp;
+			}
+		}
+
+		// return the vertex at the given index, the start of the path is at 0
+		public Vertex getVertex(int index) {
+			if (index < 0 || index >= numVertices) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + numVertices);
+			}
+			return verticesInPath[index];
 		}
 
 		// return number of vertices in this Path
 		public int getNumVerticesInPath() {
-			return verticesInPath.size();
+			return numVertices;
 		}
 
 		// return the number of edges in this Path
 		public int getNumEdgesInPath() {
-			return verticesInPath.size() - 1;
+			return numVertices - 1;
 		}
 
 		// return weighted cost of path
@@ -49,15 +77,14 @@ public class Path implements Comparable<Path> {
 		public String toString() {
 			StringBuilder result = new StringBuilder();
 			result.append("[");
-			for (Vertex v : verticesInPath) {
-				result.append(v.getName());
-				result.append(", ");
-			}
-			if (verticesInPath.size() > 0) {
-				result.delete(result.length() - 2, result.length());
+			for (int i = 0; i < numVertices; i++) {
+				if (i > 0) {
+					result.append(", ");
+				}
+				result.append(verticesInPath[i].getName());
 			}
 			result.append("]");
-			if (verticesInPath.size() > 0) {
+			if (numVertices > 0) {
 				result.append(" cost: ");
 				result.append(weightedCostOfPath);
 			}
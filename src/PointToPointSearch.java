@@ -0,0 +1,390 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Answers shortest path queries between one source and one target on a
+ * CompactGraph. Unlike a single source search it stops as soon as the target's
+ * distance is known, and the bidirectional modes search forward from the source
+ * and backward from the target at the same time, so a query usually only looks
+ * at a small part of the graph.
+ *
+ * A PointToPointSearch keeps its buffers between queries and only resets the
+ * entries a query touched, so the cost of a query does not depend on the size of
+ * the graph. It is not thread safe; each thread needs its own.
+ */
+public class PointToPointSearch {
+
+	private static final double INFINITY = SearchState.INFINITY;
+
+	private static final int NO_VERTEX = SearchState.NO_VERTEX;
+
+	private final CompactGraph graph;
+
+	// forward search from the source. An entry is only valid if
+	// seenForward[v] == stamp.
+	private final double[] costForward;
+	private final int[] prevForward;
+	private final int[] seenForward;
+	private final IndexedMinHeap heapForward;
+	private final int[] queueForward;
+
+	// backward search from the target on the reverse graph. nextBackward[v]
+	// is the vertex after v on the path to the target.
+	private final double[] costBackward;
+	private final int[] nextBackward;
+	private final int[] seenBackward;
+	private final IndexedMinHeap heapBackward;
+	private final int[] queueBackward;
+
+	private int stamp;
+
+	// the vertices settled by the last query, in the order they were settled
+	private final int[] settled;
+	private int numSettled;
+
+	/**
+	 * Create a search for the given graph. <br>
+	 * pre: graph != null
+	 *
+	 * @param graph The graph to search.
+	 */
+	public PointToPointSearch(CompactGraph graph) {
+		if (graph == null) {
+			throw new IllegalArgumentException("Violation of precondition. " + "graph may not be null.");
+		}
+		this.graph = graph;
+		int n = graph.numVertices();
+		costForward = new double[n];
+		prevForward = new int[n];
+		seenForward = new int[n];
+		heapForward = new IndexedMinHeap(n);
+		queueForward = new int[n];
+		costBackward = new double[n];
+		nextBackward = new int[n];
+		seenBackward = new int[n];
+		heapBackward = new IndexedMinHeap(n);
+		queueBackward = new int[n];
+		settled = new int[n];
+	}
+
+	/**
+	 * Return the graph this object searches.
+	 *
+	 * @return the graph this object searches.
+	 */
+	public CompactGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Find the shortest path from source to target, stopping as soon as the
+	 * target is settled. <br>
+	 * pre: 0 <= source, target < getGraph().numVertices()
+	 *
+	 * @param source   the id of the start vertex
+	 * @param target   the id of the end vertex
+	 * @param weighted If weighted == true use edge costs, otherwise every edge
+	 *                 costs 1.
+	 * @return the shortest path from source to target.
+	 */
+	public Route search(int source, int target, boolean weighted) {
+		begin(source, target);
+		if (weighted) {
+			dijkstra(source, target);
+		} else {
+			breadthFirst(source, target);
+		}
+		return makeRoute(target, NO_VERTEX);
+	}
+
+	/**
+	 * Find the shortest weighted path from source to target with an A* search.
+	 * Vertices are settled in order of their cost from the source plus the
+	 * straight line distance to the target times costPerUnit. If no edge costs
+	 * less than costPerUnit per unit of distance the path found is a shortest
+	 * path. Vertices without a position get no distance estimate. <br>
+	 * pre: 0 <= source, target < getGraph().numVertices(), costPerUnit >= 0
+	 *
+	 * @param source      the id of the start vertex
+	 * @param target      the id of the end vertex
+	 * @param costPerUnit scale applied to straight line distance
+	 * @return the shortest path from source to target.
+	 */
+	public Route searchAStar(int source, int target, double costPerUnit) {
+		if (!(costPerUnit >= 0)) {
+			throw new IllegalArgumentException("Violation of precondition. " + "costPerUnit must be >= 0. " + costPerUnit);
+		}
+		begin(source, target);
+		heapForward.insert(source, costPerUnit * graph.distance(source, target));
+		while (!heapForward.isEmpty()) {
+			int curr = heapForward.removeMin();
+			settle(curr);
+			if (curr == target) {
+				break;
+			}
+			double currCost = costForward[curr];
+			for (int e = graph.firstEdge(curr); e < graph.endEdge(curr); e++) {
+				int next = graph.target(e);
+				double newCost = currCost + graph.weight(e);
+				if (seenForward[next] != stamp || newCost < costForward[next]) {
+					setForward(next, newCost, curr);
+					heapForward.insertOrDecrease(next, newCost + costPerUnit * graph.distance(next, target));
+				}
+			}
+		}
+		return makeRoute(target, NO_VERTEX);
+	}
+
+	/**
+	 * Return the ids of the vertices the last query settled, in the order they
+	 * were settled. Useful to show how much of the graph a query explored.
+	 *
+	 * @return the vertices settled by the last query.
+	 */
+	public int[] getSettledVertices() {
+		return Arrays.copyOf(settled, Math.min(numSettled, settled.length));
+	}
+
+	/**
+	 * Find the shortest path from source to target by searching forward from the
+	 * source and backward from the target until the two searches meet. <br>
+	 * pre: 0 <= source, target < getGraph().numVertices()
+	 *
+	 * @param source   the id of the start vertex
+	 * @param target   the id of the end vertex
+	 * @param weighted If weighted == true use edge costs, otherwise every edge
+	 *                 costs 1.
+	 * @return the shortest path from source to target.
+	 */
+	public Route searchBidirectional(int source, int target, boolean weighted) {
+		begin(source, target);
+		if (source == target) {
+			return makeRoute(target, NO_VERTEX);
+		}
+		int meet = weighted ? bidirectionalDijkstra(source, target) : bidirectionalBreadthFirst(source, target);
+		return makeRoute(target, meet);
+	}
+
+	// check the ids and move to a new stamp so old entries are ignored
+	private void begin(int source, int target) {
+		checkId(source);
+		checkId(target);
+		stamp++;
+		if (stamp == 0) {
+			// the stamp wrapped around, so old entries could look valid
+			Arrays.fill(seenForward, 0);
+			Arrays.fill(seenBackward, 0);
+			stamp = 1;
+		}
+		numSettled = 0;
+		heapForward.clear();
+		heapBackward.clear();
+		setForward(source, 0, NO_VERTEX);
+	}
+
+	private void dijkstra(int source, int target) {
+		heapForward.insert(source, 0);
+		while (!heapForward.isEmpty()) {
+			int curr = heapForward.removeMin();
+			settle(curr);
+			if (curr == target) {
+				return;
+			}
+			relaxForward(curr);
+		}
+	}
+
+	private void breadthFirst(int source, int target) {
+		int head = 0;
+		int tail = 0;
+		queueForward[tail++] = source;
+		while (head < tail && seenForward[target] != stamp) {
+			int curr = queueForward[head++];
+			settle(curr);
+			double nextCost = costForward[curr] + 1;
+			for (int e = graph.firstEdge(curr); e < graph.endEdge(curr); e++) {
+				int next = graph.target(e);
+				if (seenForward[next] != stamp) {
+					setForward(next, nextCost, curr);
+					queueForward[tail++] = next;
+				}
+			}
+		}
+	}
+
+	// Settle the side whose heap is smaller. Stop once the smallest keys of
+	// the two heaps add up to at least the best path found, since no path
+	// through an unsettled vertex can be shorter.
+	private int bidirectionalDijkstra(int source, int target) {
+		CompactGraph reverse = graph.reverse();
+		setBackward(target, 0, NO_VERTEX);
+		heapForward.insert(source, 0);
+		heapBackward.insert(target, 0);
+		double best = INFINITY;
+		int meet = NO_VERTEX;
+		while (!heapForward.isEmpty() && !heapBackward.isEmpty()
+				&& heapForward.minKey() + heapBackward.minKey() < best) {
+			if (heapForward.size() <= heapBackward.size()) {
+				int curr = heapForward.removeMin();
+				settle(curr);
+				for (int e = graph.firstEdge(curr); e < graph.endEdge(curr); e++) {
+					int next = graph.target(e);
+					double newCost = costForward[curr] + graph.weight(e);
+					if (seenForward[next] != stamp || newCost < costForward[next]) {
+						setForward(next, newCost, curr);
+						heapForward.insertOrDecrease(next, newCost);
+					}
+					if (seenBackward[next] == stamp && costForward[next] + costBackward[next] < best) {
+						best = costForward[next] + costBackward[next];
+						meet = next;
+					}
+				}
+			} else {
+				int curr = heapBackward.removeMin();
+				settle(curr);
+				for (int e = reverse.firstEdge(curr); e < reverse.endEdge(curr); e++) {
+					int next = reverse.target(e);
+					double newCost = costBackward[curr] + reverse.weight(e);
+					if (seenBackward[next] != stamp || newCost < costBackward[next]) {
+						setBackward(next, newCost, curr);
+						heapBackward.insertOrDecrease(next, newCost);
+					}
+					if (seenForward[next] == stamp && costForward[next] + costBackward[next] < best) {
+						best = costForward[next] + costBackward[next];
+						meet = next;
+					}
+				}
+			}
+		}
+		return meet;
+	}
+
+	// Expand one whole level of the side with the smaller frontier at a time.
+	// Once a level connects the two searches the shortest of the connections
+	// found in that level is a shortest path.
+	private int bidirectionalBreadthFirst(int source, int target) {
+		CompactGraph reverse = graph.reverse();
+		setBackward(target, 0, NO_VERTEX);
+		int headForward = 0;
+		int tailForward = 0;
+		int headBackward = 0;
+		int tailBackward = 0;
+		queueForward[tailForward++] = source;
+		queueBackward[tailBackward++] = target;
+		double best = INFINITY;
+		int meet = NO_VERTEX;
+		while (meet == NO_VERTEX && headForward < tailForward && headBackward < tailBackward) {
+			if (tailForward - headForward <= tailBackward - headBackward) {
+				int levelEnd = tailForward;
+				while (headForward < levelEnd) {
+					int curr = queueForward[headForward++];
+					settle(curr);
+					double nextCost = costForward[curr] + 1;
+					for (int e = graph.firstEdge(curr); e < graph.endEdge(curr); e++) {
+						int next = graph.target(e);
+						if (seenForward[next] != stamp) {
+							setForward(next, nextCost, curr);
+							queueForward[tailForward++] = next;
+							if (seenBackward[next] == stamp && nextCost + costBackward[next] < best) {
+								best = nextCost + costBackward[next];
+								meet = next;
+							}
+						}
+					}
+				}
+			} else {
+				int levelEnd = tailBackward;
+				while (headBackward < levelEnd) {
+					int curr = queueBackward[headBackward++];
+					settle(curr);
+					double nextCost = costBackward[curr] + 1;
+					for (int e = reverse.firstEdge(curr); e < reverse.endEdge(curr); e++) {
+						int next = reverse.target(e);
+						if (seenBackward[next] != stamp) {
+							setBackward(next, nextCost, curr);
+							queueBackward[tailBackward++] = next;
+							if (seenForward[next] == stamp && nextCost + costForward[next] < best) {
+								best = nextCost + costForward[next];
+								meet = next;
+							}
+						}
+					}
+				}
+			}
+		}
+		return meet;
+	}
+
+	private void relaxForward(int curr) {
+		double currCost = costForward[curr];
+		for (int e = graph.firstEdge(curr); e < graph.endEdge(curr); e++) {
+			int next = graph.target(e);
+			double newCost = currCost + graph.weight(e);
+			if (seenForward[next] != stamp || newCost < costForward[next]) {
+				setForward(next, newCost, curr);
+				heapForward.insertOrDecrease(next, newCost);
+			}
+		}
+	}
+
+	// record that v has been settled. In the bidirectional searches a
+	// vertex may be settled from both sides and is then recorded twice.
+	private void settle(int v) {
+		if (numSettled < settled.length) {
+			settled[numSettled] = v;
+		}
+		numSettled++;
+	}
+
+	private void setForward(int v, double cost, int prev) {
+		seenForward[v] = stamp;
+		costForward[v] = cost;
+		prevForward[v] = prev;
+	}
+
+	private void setBackward(int v, double cost, int next) {
+		seenBackward[v] = stamp;
+		costBackward[v] = cost;
+		nextBackward[v] = next;
+	}
+
+	// Build the route to target. If meet is a vertex the path is the forward
+	// path to meet followed by the backward path from meet to target.
+	// Otherwise the forward search reached the target by itself.
+	private Route makeRoute(int target, int meet) {
+		int end = (meet == NO_VERTEX) ? target : meet;
+		if (seenForward[end] != stamp) {
+			return new Route(graph, new int[0], INFINITY, numSettled);
+		}
+		int forwardLength = 0;
+		for (int v = end; v != NO_VERTEX; v = prevForward[v]) {
+			forwardLength++;
+		}
+		int backwardLength = 0;
+		if (meet != NO_VERTEX) {
+			for (int v = nextBackward[meet]; v != NO_VERTEX; v = nextBackward[v]) {
+				backwardLength++;
+			}
+		}
+		int[] path = new int[forwardLength + backwardLength];
+		int i = forwardLength - 1;
+		for (int v = end; v != NO_VERTEX; v = prevForward[v]) {
+			path[i--] = v;
+		}
+		double cost = costForward[end];
+		if (meet != NO_VERTEX) {
+			i = forwardLength;
+			for (int v = nextBackward[meet]; v != NO_VERTEX; v = nextBackward[v]) {
+				path[i++] = v;
+			}
+			cost += costBackward[meet];
+		}
+		return new Route(graph, path, cost, numSettled);
+	}
+
+	private void checkId(int id) {
+		if (id < 0 || id >= graph.numVertices()) {
+			throw new NoSuchElementException("No Vertex with id " + id + " exists in this Graph");
+		}
+	}
+}
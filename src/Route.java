@@ -0,0 +1,115 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The result of a point to point shortest path query: the vertices on the path
+ * from the source to the target and the cost of the path. If the target cannot
+ * be reached the path is empty. Also records how many vertices the search
+ * settled, which shows how much of the graph the query had to look at.
+ */
+public class Route {
+
+	private final CompactGraph graph;
+	private final int[] vertexIds;
+	private final double cost;
+	private final int numSettled;
+
+	// vertexIds is owned by the new Route and must not be changed after
+	Route(CompactGraph graph, int[] vertexIds, double cost, int numSettled) {
+		this.graph = graph;
+		this.vertexIds = vertexIds;
+		this.cost = cost;
+		this.numSettled = numSettled;
+	}
+
+	/**
+	 * Return true if a path from the source to the target was found.
+	 *
+	 * @return true if the target can be reached from the source.
+	 */
+	public boolean isFound() {
+		return vertexIds.length > 0;
+	}
+
+	/**
+	 * Return the cost of the path, or -1 if there is no path.
+	 *
+	 * @return the cost of the path.
+	 */
+	public double getCost() {
+		return isFound() ? cost : -1;
+	}
+
+	/**
+	 * Return the number of edges in the path, or -1 if there is no path.
+	 *
+	 * @return the number of edges in the path.
+	 */
+	public int getNumEdges() {
+		return vertexIds.length - 1;
+	}
+
+	/**
+	 * Return the ids of the vertices on the path, source first.
+	 *
+	 * @return the ids of the vertices on the path.
+	 */
+	public int[] getVertexIds() {
+		return vertexIds.clone();
+	}
+
+	/**
+	 * Copy the ids of the vertices on the path, source first, into buffer so a
+	 * caller answering many queries can reuse one array. <br>
+	 * pre: buffer != null, buffer.length >= getNumEdges() + 1
+	 *
+	 * @param buffer where the ids are written.
+	 * @return the number of vertices on the path, 0 if there is no path.
+	 */
+	public int getVertexIds(int[] buffer) {
+		if (buffer == null || buffer.length < vertexIds.length) {
+			throw new IllegalArgumentException("Violation of precondition. " + "buffer must hold "
+					+ vertexIds.length + " ids.");
+		}
+		System.arraycopy(vertexIds, 0, buffer, 0, vertexIds.length);
+		return vertexIds.length;
+	}
+
+	/**
+	 * Return the names of the vertices on the path, source first.
+	 *
+	 * @return the names of the vertices on the path.
+	 */
+	public List<String> getNames() {
+		List<String> result = new ArrayList<>(vertexIds.length);
+		for (int v : vertexIds) {
+			result.add(graph.nameOf(v));
+		}
+		return result;
+	}
+
+	/**
+	 * Return the number of vertices the search settled before it stopped.
+	 *
+	 * @return the number of vertices settled.
+	 */
+	public int getNumSettled() {
+		return numSettled;
+	}
+
+	public String toString() {
+		StringBuilder result = new StringBuilder("[");
+		for (int i = 0; i < vertexIds.length; i++) {
+			if (i > 0) {
+				result.append(", ");
+			}
+			result.append(graph.nameOf(vertexIds[i]));
+		}
+		result.append("]");
+		if (vertexIds.length > 0) {
+			result.append(" cost: ");
+			result.append(cost);
+		}
+		return result.toString();
+	}
+}
@@ -0,0 +1,156 @@
+import java.util.Arrays;
+
+/**
+ * Records the steps of a search as a SearchListener, so they can be replayed
+ * later with a SearchReplay at any speed. Each step is packed into a long and a
+ * double in arrays of CHUNK_SIZE steps, so recording a step creates no object
+ * and a long search costs 16 bytes a step. Drop the log to throw the steps away.
+ *
+ * One thread records while any number of others read. A reader sees the steps
+ * before size() as it was when read, and they never change after that, so the
+ * search can run on a worker thread while another shows its steps as they
+ * arrive.
+ */
+public class SearchEventLog implements SearchListener {
+
+	/** The kind of a visited step. */
+	public static final int VISIT = 0;
+
+	/** The kind of a relaxed step. */
+	public static final int RELAX = 1;
+
+	/** The kind of a settled step. */
+	public static final int SETTLE = 2;
+
+	private static final int CHUNK_BITS = 16;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+	// the vertices are 31 bit fields, stored plus one so -1 fits
+	private static final long VERTEX_MASK = (1L << 31) - 1;
+
+	// step i is in chunk i >> CHUNK_BITS. Each long holds the kind in its top
+	// two bits, then from + 1, then to. The table is replaced, never changed
+	// in place, when it grows.
+	private volatile long[][] steps = new long[1][];
+	private volatile double[][] costs = new double[1][];
+
+	// written after the steps it counts, so a reader that sees a size sees
+	// the steps before it
+	private volatile long size;
+	private volatile boolean finished;
+
+	/**
+	 * Return the number of steps recorded so far.
+	 *
+	 * @return the number of steps recorded so far.
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * Return true once the search has finished, after which size() does not
+	 * change.
+	 *
+	 * @return true if the search has finished.
+	 */
+	public boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * Return the kind of step i: VISIT, RELAX or SETTLE. <br>
+	 * pre: 0 <= i < size()
+	 *
+	 * @param i the number of the step.
+	 * @return the kind of step i.
+	 */
+	public int kind(long i) {
+		return (int) (step(i) >>> 62);
+	}
+
+	/**
+	 * Return the vertex step i started from: the vertex the edge leaves for VISIT
+	 * and RELAX, and -1 for SETTLE or for the start vertex. <br>
+	 * pre: 0 <= i < size()
+	 *
+	 * @param i the number of the step.
+	 * @return the vertex the step started from.
+	 */
+	public int from(long i) {
+		return (int) ((step(i) >>> 31) & VERTEX_MASK) - 1;
+	}
+
+	/**
+	 * Return the vertex step i went to, or that was settled. <br>
+	 * pre: 0 <= i < size()
+	 *
+	 * @param i the number of the step.
+	 * @return the vertex of the step.
+	 */
+	public int to(long i) {
+		return (int) (step(i) & VERTEX_MASK);
+	}
+
+	/**
+	 * Return the cost of the path of RELAX step i, 0 for the other kinds. <br>
+	 * pre: 0 <= i < size()
+	 *
+	 * @param i the number of the step.
+	 * @return the cost of the path.
+	 */
+	public double cost(long i) {
+		checkIndex(i);
+		return costs[(int) (i >>> CHUNK_BITS)][(int) i & (CHUNK_SIZE - 1)];
+	}
+
+	public void visited(int from, int to) {
+		add(VISIT, from, to, 0);
+	}
+
+	public void relaxed(int from, int to, double cost) {
+		add(RELAX, from, to, cost);
+	}
+
+	public void settled(int v) {
+		add(SETTLE, -1, v, 0);
+	}
+
+	public void finished() {
+		finished = true;
+	}
+
+	private long step(long i) {
+		checkIndex(i);
+		return steps[(int) (i >>> CHUNK_BITS)][(int) i & (CHUNK_SIZE - 1)];
+	}
+
+	private void checkIndex(long i) {
+		if (i < 0 || i >= size) {
+			throw new IllegalArgumentException(
+					"Violation of precondition. " + "i must be 0 to size() - 1. " + i);
+		}
+	}
+
+	// only called by the recording thread
+	private void add(int kind, int from, int to, double cost) {
+		long i = size;
+		int chunk = (int) (i >>> CHUNK_BITS);
+		int offset = (int) i & (CHUNK_SIZE - 1);
+		long[][] s = steps;
+		double[][] c = costs;
+		if (chunk == s.length) {
+			s = Arrays.copyOf(s, s.length * 2);
+			c = Arrays.copyOf(c, c.length * 2);
+		}
+		if (s[chunk] == null) {
+			s[chunk] = new long[CHUNK_SIZE];
+			c[chunk] = new double[CHUNK_SIZE];
+			costs = c;
+			steps = s;
+		}
+		s[chunk][offset] = ((long) kind << 62) | ((from + 1L) << 31) | to;
+		c[chunk][offset] = cost;
+		size = i + 1;
+	}
+}
@@ -0,0 +1,41 @@
+/**
+ * Told about each step of a single source search on a CompactGraph, so the
+ * search can be recorded and shown later. The calls come on the thread running
+ * the search, in the order the steps happen, and should return quickly.
+ *
+ * The search begins with relaxed(-1, start, 0) and ends with finished().
+ */
+public interface SearchListener {
+
+	/**
+	 * The search looked along the edge from one vertex to another.
+	 *
+	 * @param from the vertex the edge leaves.
+	 * @param to   the vertex the edge goes to.
+	 */
+	void visited(int from, int to);
+
+	/**
+	 * The best path found so far to a vertex now ends with the edge from another
+	 * vertex, and has the given cost. For an unweighted search the cost is the
+	 * number of edges.
+	 *
+	 * @param from the vertex before to on the path, -1 for the start vertex.
+	 * @param to   the vertex the path goes to.
+	 * @param cost the cost of the path.
+	 */
+	void relaxed(int from, int to, double cost);
+
+	/**
+	 * The shortest path to a vertex is known and will not change.
+	 *
+	 * @param v the vertex.
+	 */
+	void settled(int v);
+
+	/**
+	 * The search is over.
+	 */
+	default void finished() {
+	}
+}
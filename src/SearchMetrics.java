@@ -0,0 +1,300 @@
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Counts the work done by the searches of a CompactGraph: how many searches
+ * ran, the vertices they settled, the edges they looked along, the paths they
+ * improved, what went in and out of their heap or queue and how big it got,
+ * and how long each search took. findAllPaths also records how long each
+ * source took and how long the whole call took.
+ *
+ * Attach a SearchMetrics with CompactGraph.setMetrics or Graph.setMetrics.
+ * Without one the searches run exactly as before, so metrics cost nothing
+ * until they are turned on. With one, each search also commits a
+ * SearchMetrics.SearchEvent to JDK Flight Recorder when a recording is taking
+ * it, and each findAllPaths call an AllPathsEvent.
+ *
+ * The heap of dijkstra lowers the key of a vertex already in it instead of
+ * adding it again, so it never removes an out of date entry; those show up as
+ * heapDecreases. With metrics on, the unweighted search always works top down
+ * so that every edge it looks along is counted. All methods are thread safe,
+ * and the searches of findAllPathsParallel record into the same object.
+ */
+public class SearchMetrics {
+
+	private final LongAdder searches = new LongAdder();
+	private final LongAdder verticesSettled = new LongAdder();
+	private final LongAdder edgesScanned = new LongAdder();
+	private final LongAdder pathsImproved = new LongAdder();
+	private final LongAdder queueInserts = new LongAdder();
+	private final LongAdder queueRemovals = new LongAdder();
+	private final LongAdder heapDecreases = new LongAdder();
+	private final LongAccumulator peakQueueSize = new LongAccumulator(Math::max, 0);
+
+	private final LatencyHistogram dijkstraLatency = new LatencyHistogram();
+	private final LatencyHistogram unweightedLatency = new LatencyHistogram();
+	private final LatencyHistogram sourceLatency = new LatencyHistogram();
+	private final LatencyHistogram allPathsLatency = new LatencyHistogram();
+
+	/**
+	 * Return the number of single source searches run, including those run by
+	 * findAllPaths.
+	 *
+	 * @return the number of searches.
+	 */
+	public long searches() {
+		return searches.sum();
+	}
+
+	/**
+	 * Return the number of vertices whose shortest path was known, summed over
+	 * all searches.
+	 *
+	 * @return the number of vertices settled.
+	 */
+	public long verticesSettled() {
+		return verticesSettled.sum();
+	}
+
+	/**
+	 * Return the number of edges looked along, summed over all searches.
+	 *
+	 * @return the number of edges scanned.
+	 */
+	public long edgesScanned() {
+		return edgesScanned.sum();
+	}
+
+	/**
+	 * Return the number of times a better path to a vertex was found, summed
+	 * over all searches.
+	 *
+	 * @return the number of paths improved.
+	 */
+	public long pathsImproved() {
+		return pathsImproved.sum();
+	}
+
+	/**
+	 * Return the number of vertices put in the heap of dijkstra or the queue of
+	 * the unweighted search.
+	 *
+	 * @return the number of inserts.
+	 */
+	public long queueInserts() {
+		return queueInserts.sum();
+	}
+
+	/**
+	 * Return the number of vertices taken out of the heap or queue.
+	 *
+	 * @return the number of removals.
+	 */
+	public long queueRemovals() {
+		return queueRemovals.sum();
+	}
+
+	/**
+	 * Return the number of times dijkstra lowered the cost of a vertex already
+	 * in its heap.
+	 *
+	 * @return the number of decrease key operations.
+	 */
+	public long heapDecreases() {
+		return heapDecreases.sum();
+	}
+
+	/**
+	 * Return the most vertices any one search had in its heap or queue at once.
+	 *
+	 * @return the peak queue size.
+	 */
+	public long peakQueueSize() {
+		return peakQueueSize.get();
+	}
+
+	/**
+	 * Return the times of the dijkstra searches.
+	 *
+	 * @return the times of the dijkstra searches.
+	 */
+	public LatencyHistogram dijkstraLatency() {
+		return dijkstraLatency;
+	}
+
+	/**
+	 * Return the times of the unweighted searches.
+	 *
+	 * @return the times of the unweighted searches.
+	 */
+	public LatencyHistogram unweightedLatency() {
+		return unweightedLatency;
+	}
+
+	/**
+	 * Return the time findAllPaths spent on each source. The unweighted version
+	 * searches from up to 64 sources at once, so each of them is given an equal
+	 * share of the time of the whole batch.
+	 *
+	 * @return the times of the sources of findAllPaths.
+	 */
+	public LatencyHistogram sourceLatency() {
+		return sourceLatency;
+	}
+
+	/**
+	 * Return the times of the findAllPaths calls.
+	 *
+	 * @return the times of the findAllPaths calls.
+	 */
+	public LatencyHistogram allPathsLatency() {
+		return allPathsLatency;
+	}
+
+	/**
+	 * Set all the counters and histograms back to 0.
+	 */
+	public void reset() {
+		searches.reset();
+		verticesSettled.reset();
+		edgesScanned.reset();
+		pathsImproved.reset();
+		queueInserts.reset();
+		queueRemovals.reset();
+		heapDecreases.reset();
+		peakQueueSize.reset();
+		dijkstraLatency.reset();
+		unweightedLatency.reset();
+		sourceLatency.reset();
+		allPathsLatency.reset();
+	}
+
+	/**
+	 * Return the counters and histograms, one per line.
+	 *
+	 * @return a summary of these metrics.
+	 */
+	public String toString() {
+		StringBuilder result = new StringBuilder();
+		result.append("searches: ").append(searches());
+		result.append("\nvertices settled: ").append(verticesSettled());
+		result.append("\nedges scanned: ").append(edgesScanned());
+		result.append("\npaths improved: ").append(pathsImproved());
+		result.append("\nqueue inserts: ").append(queueInserts());
+		result.append("\nqueue removals: ").append(queueRemovals());
+		result.append("\nheap decreases: ").append(heapDecreases());
+		result.append("\npeak queue size: ").append(peakQueueSize());
+		result.append("\ndijkstra: ").append(dijkstraLatency);
+		result.append("\nunweighted: ").append(unweightedLatency);
+		result.append("\nall paths per source: ").append(sourceLatency);
+		result.append("\nall paths: ").append(allPathsLatency);
+		return result.toString();
+	}
+
+	// Add the counts of one search from start that took nanos nanoseconds.
+	void recordSearch(boolean weighted, int start, long nanos, long settled, long edges, long improved,
+			long inserts, long decreases, long peak) {
+		searches.increment();
+		verticesSettled.add(settled);
+		edgesScanned.add(edges);
+		pathsImproved.add(improved);
+		queueInserts.add(inserts);
+		queueRemovals.add(settled);
+		heapDecreases.add(decreases);
+		peakQueueSize.accumulate(peak);
+		(weighted ? dijkstraLatency : unweightedLatency).record(nanos);
+		SearchEvent event = new SearchEvent();
+		if (event.shouldCommit()) {
+			event.weighted = weighted;
+			event.start = start;
+			event.nanos = nanos;
+			event.verticesSettled = settled;
+			event.edgesScanned = edges;
+			event.pathsImproved = improved;
+			event.heapDecreases = decreases;
+			event.peakQueueSize = peak;
+			event.commit();
+		}
+	}
+
+	// Add the time findAllPaths spent on one source.
+	void recordSource(long nanos) {
+		sourceLatency.record(nanos);
+	}
+
+	// Add one findAllPaths call over numVertices sources.
+	void recordAllPaths(boolean weighted, boolean dense, int numVertices, long nanos) {
+		allPathsLatency.record(nanos);
+		AllPathsEvent event = new AllPathsEvent();
+		if (event.shouldCommit()) {
+			event.weighted = weighted;
+			event.dense = dense;
+			event.numVertices = numVertices;
+			event.nanos = nanos;
+			event.commit();
+		}
+	}
+
+	/**
+	 * A single source search, as a JDK Flight Recorder event. The event has no
+	 * duration of its own, the time of the search is in nanos.
+	 */
+	@Name("graph.Search")
+	@Label("Shortest Path Search")
+	@Category("Graph")
+	@Description("A dijkstra or unweighted search from one vertex")
+	static class SearchEvent extends Event {
+
+		@Label("Weighted")
+		boolean weighted;
+
+		@Label("Start Vertex")
+		int start;
+
+		@Label("Nanoseconds")
+		long nanos;
+
+		@Label("Vertices Settled")
+		long verticesSettled;
+
+		@Label("Edges Scanned")
+		long edgesScanned;
+
+		@Label("Paths Improved")
+		long pathsImproved;
+
+		@Label("Heap Decreases")
+		long heapDecreases;
+
+		@Label("Peak Queue Size")
+		long peakQueueSize;
+	}
+
+	/**
+	 * A findAllPaths call, as a JDK Flight Recorder event.
+	 */
+	@Name("graph.AllPaths")
+	@Label("All Pairs Shortest Paths")
+	@Category("Graph")
+	@Description("A findAllPaths call on a CompactGraph")
+	static class AllPathsEvent extends Event {
+
+		@Label("Weighted")
+		boolean weighted;
+
+		@Label("Dense Engine")
+		boolean dense;
+
+		@Label("Vertices")
+		int numVertices;
+
+		@Label("Nanoseconds")
+		long nanos;
+	}
+}
@@ -0,0 +1,157 @@
+import java.util.Arrays;
+
+/**
+ * The state of a recorded search after some number of its steps: which
+ * vertices it has reached and settled, and the best path to each found so far.
+ * Move forward a few steps at a time to animate the search, or seek to any step.
+ * Seeking back replays the log from its start.
+ */
+public class SearchReplay {
+
+	/** The search has not reached the vertex yet. */
+	public static final int UNSEEN = 0;
+
+	/** The search has found a path to the vertex, perhaps not the shortest. */
+	public static final int REACHED = 1;
+
+	/** The search knows the shortest path to the vertex. */
+	public static final int SETTLED = 2;
+
+	private final SearchEventLog log;
+	private final byte[] status;
+	private final double[] cost;
+	private final int[] prev;
+	private long position;
+
+	/**
+	 * Create a replay of log for a graph with numVertices vertices, before its
+	 * first step. <br>
+	 * pre: log != null, numVertices >= 0
+	 *
+	 * @param log         The recorded steps.
+	 * @param numVertices The number of vertices of the graph searched.
+	 */
+	public SearchReplay(SearchEventLog log, int numVertices) {
+		if (log == null || numVertices < 0) {
+			throw new IllegalArgumentException(
+					"Violation of precondition. " + "log may not be null and numVertices must be >= 0.");
+		}
+		this.log = log;
+		status = new byte[numVertices];
+		cost = new double[numVertices];
+		prev = new int[numVertices];
+		Arrays.fill(prev, SearchState.NO_VERTEX);
+	}
+
+	/**
+	 * Return the log being replayed.
+	 *
+	 * @return the log being replayed.
+	 */
+	public SearchEventLog getLog() {
+		return log;
+	}
+
+	/**
+	 * Return the number of steps applied so far.
+	 *
+	 * @return the number of steps applied.
+	 */
+	public long position() {
+		return position;
+	}
+
+	/**
+	 * Apply up to numSteps more steps, as many as the log holds, and pass each
+	 * one on to changes just before it is applied, so changes can still see
+	 * what the step replaces, such as the old getPrev of a vertex. <br>
+	 * pre: numSteps >= 0
+	 *
+	 * @param numSteps The most steps to apply.
+	 * @param changes  Told about each step applied, or null.
+	 * @return the number of steps applied.
+	 */
+	public long advance(long numSteps, SearchListener changes) {
+		if (numSteps < 0) {
+			throw new IllegalArgumentException("Violation of precondition. " + "numSteps must be >= 0. " + numSteps);
+		}
+		long end = Math.min(log.size(), position + numSteps);
+		long start = position;
+		for (; position < end; position++) {
+			int to = log.to(position);
+			switch (log.kind(position)) {
+			case SearchEventLog.RELAX:
+				if (changes != null) {
+					changes.relaxed(log.from(position), to, log.cost(position));
+				}
+				status[to] = REACHED;
+				cost[to] = log.cost(position);
+				prev[to] = log.from(position);
+				break;
+			case SearchEventLog.SETTLE:
+				if (changes != null) {
+					changes.settled(to);
+				}
+				status[to] = SETTLED;
+				break;
+			default:
+				if (changes != null) {
+					changes.visited(log.from(position), to);
+				}
+			}
+		}
+		return position - start;
+	}
+
+	/**
+	 * Move to just after step position - 1, so that position steps have been
+	 * applied, or to the end of the log if it holds fewer. <br>
+	 * pre: position >= 0
+	 *
+	 * @param position The number of steps to have applied.
+	 */
+	public void seek(long position) {
+		if (position < 0) {
+			throw new IllegalArgumentException("Violation of precondition. " + "position must be >= 0. " + position);
+		}
+		if (position < this.position) {
+			Arrays.fill(status, (byte) UNSEEN);
+			Arrays.fill(prev, SearchState.NO_VERTEX);
+			this.position = 0;
+		}
+		advance(position - this.position, null);
+	}
+
+	/**
+	 * Return UNSEEN, REACHED or SETTLED for vertex v. <br>
+	 * pre: 0 <= v < number of vertices
+	 *
+	 * @param v the id of the vertex.
+	 * @return the status of v.
+	 */
+	public int getStatus(int v) {
+		return status[v];
+	}
+
+	/**
+	 * Return the cost of the best path to v found so far. <br>
+	 * pre: getStatus(v) != UNSEEN
+	 *
+	 * @param v the id of the vertex.
+	 * @return the cost of the path to v.
+	 */
+	public double getCost(int v) {
+		return cost[v];
+	}
+
+	/**
+	 * Return the vertex before v on the best path found so far, or -1 if v is
+	 * the start vertex or unseen.
+	 *
+	 * @param v the id of the vertex.
+	 * @return the vertex before v.
+	 */
+	public int getPrev(int v) {
+		return prev[v];
+	}
+}
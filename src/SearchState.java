@@ -0,0 +1,66 @@
+// Work space and results for one single source search on a CompactGraph.
+// The search methods in CompactGraph write only to the SearchState they
+// are given, so threads that each have their own SearchState can search
+// the same CompactGraph at the same time.
+public class SearchState {
+
+	// used to indicate a vertex has not been visited and
+	// that no path exists between the start vertex and it.
+	static final double INFINITY = Double.MAX_VALUE;
+
+	static final int NO_VERTEX = -1;
+
+	// cost[v], hops[v] and prev[v] describe the shortest path
+	// from start to v found by the last search
+	final double[] cost;
+	final int[] hops;
+	final int[] prev;
+	int start;
+
+	// work space for the searches
+	final int[] queue;
+	final IndexedMinHeap heap;
+
+	// one bit per vertex, for the bottom up steps of the unweighted search
+	final long[] visited;
+	final long[] frontier;
+
+	public SearchState(int numVertices) {
+		cost = new double[numVertices];
+		hops = new int[numVertices];
+		prev = new int[numVertices];
+		queue = new int[numVertices];
+		heap = new IndexedMinHeap(numVertices);
+		visited = new long[(numVertices + 63) >>> 6];
+		frontier = new long[visited.length];
+		start = NO_VERTEX;
+	}
+
+	// return the number of vertices this state was sized for
+	public int capacity() {
+		return cost.length;
+	}
+
+	// reset the results of the last search and set the new start vertex
+	void reset(int startId) {
+		start = startId;
+		for (int i = 0; i < cost.length; i++) {
+			cost[i] = INFINITY;
+			hops[i] = Integer.MAX_VALUE;
+			prev[i] = NO_VERTEX;
+		}
+		cost[startId] = 0;
+		hops[startId] = 0;
+	}
+
+	// ids of the vertices from start to dest. dest must be reachable.
+	int[] pathTo(int dest) {
+		int[] result = new int[hops[dest] + 1];
+		int v = dest;
+		for (int i = result.length - 1; i >= 0; i--) {
+			result[i] = v;
+			v = prev[v];
+		}
+		return result;
+	}
+}
@@ -0,0 +1,186 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of single source shortest path results for a Graph. Results
+ * are keyed by start vertex and by weighted or unweighted search. When the cache
+ * goes over its entry or memory budget the least recently used results are
+ * evicted. Every result is tagged with the version of the Graph it was found on;
+ * once the Graph changes all cached results are dropped.
+ *
+ * Attach a cache to a Graph with Graph.setCache. All methods are synchronized so
+ * one cache may serve many reading threads.
+ */
+public class ShortestPathCache {
+
+	// rough size of a ShortestPathTree per vertex: a double, and two ints
+	private static final long BYTES_PER_VERTEX = 16;
+
+	// rough fixed size of a ShortestPathTree and its map entry
+	private static final long BYTES_PER_TREE = 128;
+
+	private final int maxEntries;
+	private final long maxBytes;
+
+	// in least recently used order
+	private final LinkedHashMap<Long, ShortestPathTree> trees;
+	private long bytes;
+	private long version;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long invalidations;
+
+	/**
+	 * Create a cache that holds at most maxEntries results and has no memory
+	 * budget. <br>
+	 * pre: maxEntries > 0
+	 *
+	 * @param maxEntries the most results to keep
+	 */
+	public ShortestPathCache(int maxEntries) {
+		this(maxEntries, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Create a cache that holds at most maxEntries results using at most about
+	 * maxBytes of memory. <br>
+	 * pre: maxEntries > 0, maxBytes > 0
+	 *
+	 * @param maxEntries the most results to keep
+	 * @param maxBytes   the most memory the kept results may use
+	 */
+	public ShortestPathCache(int maxEntries, long maxBytes) {
+		if (maxEntries <= 0) {
+			throw new IllegalArgumentException("Violation of precondition. " + "maxEntries must be > 0. " + maxEntries);
+		}
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("Violation of precondition. " + "maxBytes must be > 0. " + maxBytes);
+		}
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+		trees = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	// Return the cached result for start or null if there is none. If the
+	// graph has changed since the results were cached they are all dropped.
+	synchronized ShortestPathTree get(long graphVersion, int start, boolean weighted) {
+		checkVersion(graphVersion);
+		ShortestPathTree result = trees.get(key(start, weighted));
+		if (result == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return result;
+	}
+
+	// Add a result found on the given version of the graph, evicting least
+	// recently used results to stay in budget.
+	synchronized void put(long graphVersion, ShortestPathTree tree) {
+		checkVersion(graphVersion);
+		long treeBytes = sizeOf(tree);
+		if (treeBytes > maxBytes) {
+			return;
+		}
+		ShortestPathTree old = trees.put(key(tree.getStart(), tree.isWeighted()), tree);
+		if (old != null) {
+			bytes -= sizeOf(old);
+		}
+		bytes += treeBytes;
+		Iterator<Map.Entry<Long, ShortestPathTree>> it = trees.entrySet().iterator();
+		while (trees.size() > maxEntries || bytes > maxBytes) {
+			bytes -= sizeOf(it.next().getValue());
+			it.remove();
+			evictions++;
+		}
+	}
+
+	private void checkVersion(long graphVersion) {
+		if (graphVersion != version) {
+			if (!trees.isEmpty()) {
+				invalidations++;
+			}
+			clear();
+			version = graphVersion;
+		}
+	}
+
+	private static long key(int start, boolean weighted) {
+		return ((long) start << 1) | (weighted ? 1 : 0);
+	}
+
+	private static long sizeOf(ShortestPathTree tree) {
+		return BYTES_PER_TREE + BYTES_PER_VERTEX * tree.getGraph().numVertices();
+	}
+
+	/**
+	 * Remove all results from this cache. The counters are not reset.
+	 */
+	public synchronized void clear() {
+		trees.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * Return the number of results in this cache.
+	 *
+	 * @return the number of results in this cache.
+	 */
+	public synchronized int size() {
+		return trees.size();
+	}
+
+	/**
+	 * Return the approximate number of bytes used by the results in this cache.
+	 *
+	 * @return the approximate memory used by this cache.
+	 */
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Return the number of lookups that found a result.
+	 *
+	 * @return the number of cache hits.
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Return the number of lookups that did not find a result.
+	 *
+	 * @return the number of cache misses.
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Return the number of results removed to stay within budget.
+	 *
+	 * @return the number of evictions.
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Return the number of times the cached results were dropped because the
+	 * Graph changed.
+	 *
+	 * @return the number of invalidations.
+	 */
+	public synchronized long getInvalidations() {
+		return invalidations;
+	}
+
+	public synchronized String toString() {
+		return "entries: " + trees.size() + ", bytes: " + bytes + ", hits: " + hits + ", misses: " + misses
+				+ ", evictions: " + evictions + ", invalidations: " + invalidations;
+	}
+}
@@ -0,0 +1,232 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The result of one single source shortest path search: the cost, number of
+ * edges and previous vertex of the shortest path from the start vertex to every
+ * vertex, stored in arrays indexed by vertex id. A ShortestPathTree never
+ * changes once it is made and refers only to the CompactGraph it was found on,
+ * so any number of threads may read it at once, even while the Graph it came
+ * from is being changed.
+ */
+public class ShortestPathTree {
+
+	private static final double INFINITY = SearchState.INFINITY;
+
+	private final CompactGraph graph;
+	private final int start;
+	private final boolean weighted;
+
+	// cost[v], hops[v] and prev[v] describe the shortest path from start to v
+	private final double[] cost;
+	private final int[] hops;
+	private final int[] prev;
+
+	// The arrays are owned by the new tree and must not be changed after.
+	ShortestPathTree(CompactGraph graph, int start, boolean weighted, double[] cost, int[] hops, int[] prev) {
+		this.graph = graph;
+		this.start = start;
+		this.weighted = weighted;
+		this.cost = cost;
+		this.hops = hops;
+		this.prev = prev;
+	}
+
+	/**
+	 * Return the graph this tree was found on.
+	 *
+	 * @return the graph this tree was found on.
+	 */
+	public CompactGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Return the id of the start vertex.
+	 *
+	 * @return the id of the start vertex.
+	 */
+	public int getStart() {
+		return start;
+	}
+
+	/**
+	 * Return the name of the start vertex.
+	 *
+	 * @return the name of the start vertex.
+	 */
+	public String getStartName() {
+		return graph.nameOf(start);
+	}
+
+	/**
+	 * Return true if this tree was found with dijkstra, false if it was found
+	 * with the unweighted shortest path algorithm.
+	 *
+	 * @return true if edge costs were used.
+	 */
+	public boolean isWeighted() {
+		return weighted;
+	}
+
+	/**
+	 * Return true if there is a path from the start vertex to dest. <br>
+	 * pre: 0 <= dest < getGraph().numVertices()
+	 *
+	 * @param dest the id of the destination vertex.
+	 * @return true if dest can be reached from the start vertex.
+	 */
+	public boolean isReachable(int dest) {
+		checkId(dest);
+		return cost[dest] != INFINITY;
+	}
+
+	/**
+	 * Get the total cost of the shortest path from the start vertex to dest. <br>
+	 * pre: 0 <= dest < getGraph().numVertices()
+	 *
+	 * @param dest the id of the destination vertex.
+	 * @return the cost of the path, or -1 if no path exists.
+	 */
+	public double getWeightedCost(int dest) {
+		checkId(dest);
+		return (cost[dest] == INFINITY) ? -1 : cost[dest];
+	}
+
+	/**
+	 * Get the total cost of the shortest path from the start vertex to dest. <br>
+	 * pre: getGraph().containsVertex(dest) == true
+	 *
+	 * @param dest the name of the destination vertex.
+	 * @return the cost of the path, or -1 if no path exists.
+	 */
+	public double getWeightedCost(String dest) {
+		return getWeightedCost(graph.idOf(dest));
+	}
+
+	/**
+	 * Get the number of edges in the shortest path from the start vertex to dest.
+	 * <br>
+	 * pre: 0 <= dest < getGraph().numVertices()
+	 *
+	 * @param dest the id of the destination vertex.
+	 * @return the number of edges in the path, or -1 if no path exists.
+	 */
+	public int getNumEdges(int dest) {
+		checkId(dest);
+		return (hops[dest] == Integer.MAX_VALUE) ? -1 : hops[dest];
+	}
+
+	/**
+	 * Get the number of edges in the shortest path from the start vertex to dest.
+	 * <br>
+	 * pre: getGraph().containsVertex(dest) == true
+	 *
+	 * @param dest the name of the destination vertex.
+	 * @return the number of edges in the path, or -1 if no path exists.
+	 */
+	public int getNumEdges(String dest) {
+		return getNumEdges(graph.idOf(dest));
+	}
+
+	/**
+	 * Get the id of the vertex before dest on the shortest path from the start
+	 * vertex. <br>
+	 * pre: 0 <= dest < getGraph().numVertices()
+	 *
+	 * @param dest the id of the destination vertex.
+	 * @return the previous vertex, or -1 if dest is the start vertex or cannot be
+	 *         reached.
+	 */
+	public int getPrevious(int dest) {
+		checkId(dest);
+		return prev[dest];
+	}
+
+	/**
+	 * Get the ids of the vertices on the shortest path from the start vertex to
+	 * dest. <br>
+	 * pre: 0 <= dest < getGraph().numVertices()
+	 *
+	 * @param dest the id of the destination vertex.
+	 * @return the path with the start vertex at index 0 and dest at the end, or
+	 *         an empty array if no path exists.
+	 */
+	public int[] getPathIds(int dest) {
+		checkId(dest);
+		int[] result = new int[cost[dest] == INFINITY ? 0 : hops[dest] + 1];
+		getPathIds(dest, result);
+		return result;
+	}
+
+	/**
+	 * Write the ids of the vertices on the shortest path from the start vertex to
+	 * dest into buffer, so a caller extracting many paths can reuse one array.
+	 * The path is followed back through the previous vertices with a loop, so any
+	 * length of path is fine. <br>
+	 * pre: 0 <= dest < getGraph().numVertices(), buffer != null,
+	 * buffer.length >= getNumEdges(dest) + 1
+	 *
+	 * @param dest   the id of the destination vertex.
+	 * @param buffer where the path is written, with the start vertex at index 0.
+	 * @return the number of vertices on the path, or 0 if no path exists.
+	 */
+	public int getPathIds(int dest, int[] buffer) {
+		checkId(dest);
+		if (buffer == null) {
+			throw new IllegalArgumentException("Violation of precondition. " + "buffer may not be null.");
+		}
+		if (cost[dest] == INFINITY) {
+			return 0;
+		}
+		int length = hops[dest] + 1;
+		if (buffer.length < length) {
+			throw new IllegalArgumentException(
+					"Violation of precondition. " + "buffer must hold " + length + " ids. " + buffer.length);
+		}
+		int v = dest;
+		for (int i = length - 1; i >= 0; i--) {
+			buffer[i] = v;
+			v = prev[v];
+		}
+		return length;
+	}
+
+	/**
+	 * Get the names of the vertices on the shortest path from the start vertex to
+	 * dest. <br>
+	 * pre: 0 <= dest < getGraph().numVertices()
+	 *
+	 * @param dest the id of the destination vertex.
+	 * @return the path with the start vertex at index 0 and dest at the end, or
+	 *         an empty List if no path exists.
+	 */
+	public List<String> findPath(int dest) {
+		int[] ids = getPathIds(dest);
+		List<String> result = new ArrayList<>(ids.length);
+		for (int v : ids) {
+			result.add(graph.nameOf(v));
+		}
+		return result;
+	}
+
+	/**
+	 * Get the names of the vertices on the shortest path from the start vertex to
+	 * dest. <br>
+	 * pre: getGraph().containsVertex(dest) == true
+	 *
+	 * @param dest the name of the destination vertex.
+	 * @return the path with the start vertex at index 0 and dest at the end, or
+	 *         an empty List if no path exists.
+	 */
+	public List<String> findPath(String dest) {
+		return findPath(graph.idOf(dest));
+	}
+
+	private void checkId(int id) {
+		if (id < 0 || id >= cost.length) {
+			throw new NoSuchElementException("No Vertex with id " + id + " exists in this Graph");
+		}
+	}
+}
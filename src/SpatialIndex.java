@@ -0,0 +1,740 @@
+import java.util.Arrays;
+
+/**
+ * A uniform grid over the positions of the vertices of a CompactGraph, used to
+ * find the vertices and edges in a rectangle, or the vertex nearest a point,
+ * without looking at the rest of the graph. Vertices without a position are
+ * left out, as are the edges to and from them.
+ *
+ * The grid has a few vertices per cell on average. Each vertex is kept in the
+ * cell it is in. Each edge that is no longer than a cell along either axis is
+ * kept in the cell holding its midpoint, so it lies within half a cell of that
+ * cell and a search for edges only has to look half a cell beyond the
+ * rectangle. The few longer edges are kept in a list and checked one by one.
+ *
+ * For drawing the graph zoomed out the index also has coarser levels. Level k
+ * has cells 2^k times as wide as the grid. At each level the vertices in a cell
+ * make one cluster at their average position, and all the edges between two
+ * clusters make one bundle. As with edges, a bundle between clusters in the
+ * same or neighbouring cells is kept with the cell of its first end, so a
+ * search only looks one cell beyond the rectangle, and the longer bundles are
+ * kept in a list. A level is built the first time it is used.
+ *
+ * The positions are read once, when the index is made. A SpatialIndex may be
+ * searched by any number of threads at once. Two threads using a level for the
+ * first time may both build it, which only wastes time.
+ */
+public class SpatialIndex {
+
+	private static final int NO_VERTEX = SearchState.NO_VERTEX;
+
+	// the grid has about this many vertices per cell
+	private static final int VERTICES_PER_CELL = 4;
+
+	/**
+	 * Called for each cluster of vertices found at a level.
+	 */
+	public interface ClusterVisitor {
+		void visit(double x, double y, int numVertices);
+	}
+
+	/**
+	 * Called for each bundle of edges found at a level. The bundle joins the
+	 * clusters at (x1, y1) and (x2, y2) and holds the edges both ways between
+	 * them.
+	 */
+	public interface BundleVisitor {
+		void visit(double x1, double y1, double x2, double y2, int numEdges);
+	}
+
+	/**
+	 * Called for each vertex or edge found by id.
+	 */
+	public interface IdVisitor {
+		void visit(int id);
+	}
+
+	private final CompactGraph graph;
+	private final double[] xs;
+	private final double[] ys;
+
+	// the grid covers minX to minX + columns * cellSize and the same for y
+	private final double minX;
+	private final double minY;
+	private final double cellSize;
+	private final int columns;
+	private final int rows;
+
+	// the vertices in cell c are vertices[vertexStart[c]] to
+	// vertices[vertexStart[c + 1] - 1], and the same for the edges
+	private final int[] vertexStart;
+	private final int[] vertices;
+	private final int[] edgeStart;
+	private final int[] edges;
+
+	// the edges longer than a cell, and the vertex each edge leaves
+	private final int[] longEdges;
+	private final int[] edgeSource;
+
+	private final Level[] levels;
+
+	/**
+	 * Create an index of the vertices of graph at the positions stored in graph.
+	 * <br>
+	 * pre: graph != null
+	 *
+	 * @param graph The graph to index.
+	 */
+	public SpatialIndex(CompactGraph graph) {
+		this(graph, positions(graph, true), positions(graph, false));
+	}
+
+	/**
+	 * Create an index of the vertices of graph with vertex v at (xs[v], ys[v]).
+	 * A vertex with a NaN coordinate has no position. The arrays are not copied
+	 * and must not be changed while the index is in use. <br>
+	 * pre: graph != null, xs.length == ys.length == graph.numVertices()
+	 *
+	 * @param graph The graph to index.
+	 * @param xs    The x coordinates of the vertices.
+	 * @param ys    The y coordinates of the vertices.
+	 */
+	public SpatialIndex(CompactGraph graph, double[] xs, double[] ys) {
+		if (graph == null || xs == null || ys == null) {
+			throw new IllegalArgumentException("Violation of precondition. " + "parameters may not be null.");
+		}
+		if (xs.length != graph.numVertices() || ys.length != graph.numVertices()) {
+			throw new IllegalArgumentException(
+					"Violation of precondition. " + "there must be one position per vertex.");
+		}
+		this.graph = graph;
+		this.xs = xs;
+		this.ys = ys;
+		int n = graph.numVertices();
+
+		double lowX = Double.POSITIVE_INFINITY;
+		double lowY = Double.POSITIVE_INFINITY;
+		double highX = Double.NEGATIVE_INFINITY;
+		double highY = Double.NEGATIVE_INFINITY;
+		int numPlaced = 0;
+		for (int v = 0; v < n; v++) {
+			if (isPlaced(v)) {
+				lowX = Math.min(lowX, xs[v]);
+				lowY = Math.min(lowY, ys[v]);
+				highX = Math.max(highX, xs[v]);
+				highY = Math.max(highY, ys[v]);
+				numPlaced++;
+			}
+		}
+		if (numPlaced == 0) {
+			lowX = lowY = highX = highY = 0;
+		}
+		minX = lowX;
+		minY = lowY;
+		double width = highX - lowX;
+		double height = highY - lowY;
+		// square cells holding VERTICES_PER_CELL vertices each if the vertices
+		// were spread evenly. A graph along a line gets cells along the line.
+		double area = Math.max(width * height, Math.max(width, height) * Math.max(width, height) / numPlaced);
+		double size = Math.sqrt(area * VERTICES_PER_CELL / Math.max(1, numPlaced));
+		if (!(size > 0)) {
+			size = 1;
+		}
+		cellSize = size;
+		columns = (int) (width / cellSize) + 1;
+		rows = (int) (height / cellSize) + 1;
+
+		vertexStart = new int[columns * rows + 1];
+		for (int v = 0; v < n; v++) {
+			if (isPlaced(v)) {
+				vertexStart[cellOf(xs[v], ys[v]) + 1]++;
+			}
+		}
+		vertices = new int[numPlaced];
+		fill(vertexStart, vertices, n, false);
+
+		edgeSource = new int[graph.numEdges()];
+		edgeStart = new int[columns * rows + 1];
+		int numLong = 0;
+		for (int v = 0; v < n; v++) {
+			for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+				edgeSource[e] = v;
+				if (isPlaced(e, v)) {
+					if (isLong(e)) {
+						numLong++;
+					} else {
+						edgeStart[midCell(e) + 1]++;
+					}
+				}
+			}
+		}
+		edges = new int[sum(edgeStart)];
+		fill(edgeStart, edges, graph.numEdges(), true);
+		longEdges = new int[numLong];
+		numLong = 0;
+		for (int e = 0; e < graph.numEdges(); e++) {
+			if (isPlaced(e, edgeSource[e]) && isLong(e)) {
+				longEdges[numLong++] = e;
+			}
+		}
+
+		int top = 0;
+		while (((columns - 1) >> top) > 0 || ((rows - 1) >> top) > 0) {
+			top++;
+		}
+		levels = new Level[top + 1];
+	}
+
+	private static double[] positions(CompactGraph graph, boolean x) {
+		if (graph == null) {
+			throw new IllegalArgumentException("Violation of precondition. " + "graph may not be null.");
+		}
+		double[] result = new double[graph.numVertices()];
+		for (int v = 0; v < result.length; v++) {
+			result[v] = !graph.hasPosition(v) ? Double.NaN : x ? graph.getX(v) : graph.getY(v);
+		}
+		return result;
+	}
+
+	private static int sum(int[] counts) {
+		int result = 0;
+		for (int c : counts) {
+			result += c;
+		}
+		return result;
+	}
+
+	// Turn the counts in start[c + 1] into offsets and put the vertices, or
+	// the short edges, in their cells.
+	private void fill(int[] start, int[] items, int numItems, boolean isEdges) {
+		for (int c = 0; c < start.length - 1; c++) {
+			start[c + 1] += start[c];
+		}
+		int[] next = Arrays.copyOf(start, start.length - 1);
+		for (int i = 0; i < numItems; i++) {
+			if (!isEdges && isPlaced(i)) {
+				items[next[cellOf(xs[i], ys[i])]++] = i;
+			} else if (isEdges && isPlaced(i, edgeSource[i]) && !isLong(i)) {
+				items[next[midCell(i)]++] = i;
+			}
+		}
+	}
+
+	/**
+	 * Return the graph this index is for.
+	 *
+	 * @return the graph this index is for.
+	 */
+	public CompactGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Return true if the vertex with id v has a position in this index. <br>
+	 * pre: 0 <= v < getGraph().numVertices()
+	 *
+	 * @param v the id of the vertex.
+	 * @return true if v has a position.
+	 */
+	public boolean isPlaced(int v) {
+		return !Double.isNaN(xs[v]) && !Double.isNaN(ys[v]);
+	}
+
+	/**
+	 * Return the x coordinate of the vertex with id v, NaN if it has none. <br>
+	 * pre: 0 <= v < getGraph().numVertices()
+	 *
+	 * @param v the id of the vertex.
+	 * @return the x coordinate of v.
+	 */
+	public double getX(int v) {
+		return xs[v];
+	}
+
+	/**
+	 * Return the y coordinate of the vertex with id v, NaN if it has none. <br>
+	 * pre: 0 <= v < getGraph().numVertices()
+	 *
+	 * @param v the id of the vertex.
+	 * @return the y coordinate of v.
+	 */
+	public double getY(int v) {
+		return ys[v];
+	}
+
+	/**
+	 * Return the id of the vertex edge e leaves. Edges are numbered as in the
+	 * graph, from 0 to getGraph().numEdges() - 1. <br>
+	 * pre: 0 <= e < getGraph().numEdges()
+	 *
+	 * @param e the id of the edge.
+	 * @return the vertex e leaves.
+	 */
+	public int getSource(int e) {
+		return edgeSource[e];
+	}
+
+	/**
+	 * Return the id of the vertex edge e goes to. <br>
+	 * pre: 0 <= e < getGraph().numEdges()
+	 *
+	 * @param e the id of the edge.
+	 * @return the vertex e goes to.
+	 */
+	public int getTarget(int e) {
+		return graph.target(e);
+	}
+
+	/**
+	 * Return the width of the cells of the grid. Level k has cells 2^k times as
+	 * wide.
+	 *
+	 * @return the width of the cells of the grid.
+	 */
+	public double getCellSize() {
+		return cellSize;
+	}
+
+	/**
+	 * Return the number of levels. The last level has a single cell.
+	 *
+	 * @return the number of levels.
+	 */
+	public int numLevels() {
+		return levels.length;
+	}
+
+	/**
+	 * Visit every placed vertex inside the rectangle from (x1, y1) to (x2, y2),
+	 * edges included.
+	 *
+	 * @param x1      the left side of the rectangle.
+	 * @param y1      the top of the rectangle.
+	 * @param x2      the right side of the rectangle.
+	 * @param y2      the bottom of the rectangle.
+	 * @param visitor called with the id of each vertex.
+	 */
+	public void forEachVertex(double x1, double y1, double x2, double y2, IdVisitor visitor) {
+		int colLow = column(x1);
+		int colHigh = column(x2);
+		for (int row = row(y1); row <= row(y2); row++) {
+			for (int c = row * columns + colLow; c <= row * columns + colHigh; c++) {
+				for (int i = vertexStart[c]; i < vertexStart[c + 1]; i++) {
+					int v = vertices[i];
+					if (x1 <= xs[v] && xs[v] <= x2 && y1 <= ys[v] && ys[v] <= y2) {
+						visitor.visit(v);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Visit every edge between placed vertices that may cross the rectangle from
+	 * (x1, y1) to (x2, y2). Every edge that does is visited, as well as some that
+	 * come close.
+	 *
+	 * @param x1      the left side of the rectangle.
+	 * @param y1      the top of the rectangle.
+	 * @param x2      the right side of the rectangle.
+	 * @param y2      the bottom of the rectangle.
+	 * @param visitor called with the id of each edge.
+	 */
+	public void forEachEdge(double x1, double y1, double x2, double y2, IdVisitor visitor) {
+		double half = cellSize / 2;
+		int colLow = column(x1 - half);
+		int colHigh = column(x2 + half);
+		for (int row = row(y1 - half); row <= row(y2 + half); row++) {
+			for (int c = row * columns + colLow; c <= row * columns + colHigh; c++) {
+				for (int i = edgeStart[c]; i < edgeStart[c + 1]; i++) {
+					if (overlaps(edges[i], x1, y1, x2, y2)) {
+						visitor.visit(edges[i]);
+					}
+				}
+			}
+		}
+		for (int e : longEdges) {
+			if (overlaps(e, x1, y1, x2, y2)) {
+				visitor.visit(e);
+			}
+		}
+	}
+
+	/**
+	 * Return the placed vertex nearest (x, y), or -1 if no vertex is within
+	 * maxDistance. Ties go to the lowest id. The search looks at the cells
+	 * around (x, y) in rings and stops as soon as no vertex in a further ring can
+	 * be nearer, so it only looks at a few cells.
+	 *
+	 * @param x           the x coordinate of the point.
+	 * @param y           the y coordinate of the point.
+	 * @param maxDistance the furthest a vertex may be from the point.
+	 * @return the id of the nearest vertex, or -1.
+	 */
+	public int nearestVertex(double x, double y, double maxDistance) {
+		int result = NO_VERTEX;
+		double best = maxDistance * maxDistance;
+		int centerCol = column(x);
+		int centerRow = row(y);
+		for (int ring = 0;; ring++) {
+			for (int row = centerRow - ring; row <= centerRow + ring; row++) {
+				if (row >= 0 && row < rows) {
+					int step = (row == centerRow - ring || row == centerRow + ring) ? 1 : 2 * ring;
+					for (int col = centerCol - ring; col <= centerCol + ring; col += Math.max(1, step)) {
+						if (col >= 0 && col < columns) {
+							int c = row * columns + col;
+							for (int i = vertexStart[c]; i < vertexStart[c + 1]; i++) {
+								int v = vertices[i];
+								double dx = xs[v] - x;
+								double dy = ys[v] - y;
+								double d = dx * dx + dy * dy;
+								if (d < best || (d == best && (result == NO_VERTEX || v < result))) {
+									best = d;
+									result = v;
+								}
+							}
+						}
+					}
+				}
+			}
+			// Done once the rings cover every cell that could hold a nearer
+			// vertex, or the whole grid.
+			double reach = Math.sqrt(best);
+			boolean coversReach = minX + (centerCol - ring) * cellSize <= x - reach
+					&& minX + (centerCol + ring + 1) * cellSize >= x + reach
+					&& minY + (centerRow - ring) * cellSize <= y - reach
+					&& minY + (centerRow + ring + 1) * cellSize >= y + reach;
+			boolean coversGrid = centerCol - ring <= 0 && centerCol + ring >= columns - 1 && centerRow - ring <= 0
+					&& centerRow + ring >= rows - 1;
+			if (coversReach || coversGrid) {
+				return result;
+			}
+		}
+	}
+
+	/**
+	 * Visit the clusters of vertices at the given level inside the rectangle from
+	 * (x1, y1) to (x2, y2). <br>
+	 * pre: 0 <= level < numLevels()
+	 *
+	 * @param level   the level to use.
+	 * @param x1      the left side of the rectangle.
+	 * @param y1      the top of the rectangle.
+	 * @param x2      the right side of the rectangle.
+	 * @param y2      the bottom of the rectangle.
+	 * @param visitor called with the position and size of each cluster.
+	 */
+	public void forEachCluster(int level, double x1, double y1, double x2, double y2, ClusterVisitor visitor) {
+		Level l = level(level);
+		// a cluster is inside its cell, so only the cells the rectangle
+		// touches need looking at, a run of each row
+		int colLow = column(x1) >> level;
+		int colHigh = column(x2) >> level;
+		for (int row = row(y1) >> level; row <= row(y2) >> level; row++) {
+			int i = Arrays.binarySearch(l.cells, row * l.columns + colLow);
+			for (i = i < 0 ? -i - 1 : i; i < l.cells.length && l.cells[i] <= row * l.columns + colHigh; i++) {
+				if (x1 <= l.x[i] && l.x[i] <= x2 && y1 <= l.y[i] && l.y[i] <= y2) {
+					visitor.visit(l.x[i], l.y[i], l.count[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Visit the bundles of edges at the given level that may cross the rectangle
+	 * from (x1, y1) to (x2, y2). Edges within one cluster are left out. <br>
+	 * pre: 0 <= level < numLevels()
+	 *
+	 * @param level   the level to use.
+	 * @param x1      the left side of the rectangle.
+	 * @param y1      the top of the rectangle.
+	 * @param x2      the right side of the rectangle.
+	 * @param y2      the bottom of the rectangle.
+	 * @param visitor called with the ends and size of each bundle.
+	 */
+	public void forEachBundle(int level, double x1, double y1, double x2, double y2, BundleVisitor visitor) {
+		Level l = level(level);
+		// a short bundle lies in the cells next to the cell of its first end,
+		// so only the cells the rectangle touches and one more all round need
+		// looking at, a run of each row
+		int colLow = Math.max(0, (column(x1) >> level) - 1);
+		int colHigh = Math.min(l.columns - 1, (column(x2) >> level) + 1);
+		int rowHigh = Math.min((rows - 1) >> level, (row(y2) >> level) + 1);
+		for (int row = Math.max(0, (row(y1) >> level) - 1); row <= rowHigh; row++) {
+			int last = row * l.columns + colHigh;
+			for (int i = l.firstBundle(row * l.columns + colLow); i < l.numShort
+					&& l.cells[l.bundleA[i]] <= last; i++) {
+				visitBundle(l, i, x1, y1, x2, y2, visitor);
+			}
+		}
+		for (int i = l.numShort; i < l.bundleCount.length; i++) {
+			visitBundle(l, i, x1, y1, x2, y2, visitor);
+		}
+	}
+
+	// visit bundle i of l if its bounding box overlaps the rectangle
+	private static void visitBundle(Level l, int i, double x1, double y1, double x2, double y2,
+			BundleVisitor visitor) {
+		int a = l.bundleA[i];
+		int b = l.bundleB[i];
+		if (Math.min(l.x[a], l.x[b]) <= x2 && Math.max(l.x[a], l.x[b]) >= x1 && Math.min(l.y[a], l.y[b]) <= y2
+				&& Math.max(l.y[a], l.y[b]) >= y1) {
+			visitor.visit(l.x[a], l.y[a], l.x[b], l.y[b], l.bundleCount[i]);
+		}
+	}
+
+	private boolean isPlaced(int e, int source) {
+		return isPlaced(source) && isPlaced(graph.target(e));
+	}
+
+	private boolean isLong(int e) {
+		int u = edgeSource[e];
+		int v = graph.target(e);
+		return Math.abs(xs[u] - xs[v]) > cellSize || Math.abs(ys[u] - ys[v]) > cellSize;
+	}
+
+	private boolean overlaps(int e, double x1, double y1, double x2, double y2) {
+		int u = edgeSource[e];
+		int v = graph.target(e);
+		return Math.min(xs[u], xs[v]) <= x2 && Math.max(xs[u], xs[v]) >= x1 && Math.min(ys[u], ys[v]) <= y2
+				&& Math.max(ys[u], ys[v]) >= y1;
+	}
+
+	private int midCell(int e) {
+		int u = edgeSource[e];
+		int v = graph.target(e);
+		return cellOf((xs[u] + xs[v]) / 2, (ys[u] + ys[v]) / 2);
+	}
+
+	private int cellOf(double x, double y) {
+		return row(y) * columns + column(x);
+	}
+
+	// the column holding x, clamped to the grid
+	private int column(double x) {
+		double c = Math.floor((x - minX) / cellSize);
+		return c < 0 ? 0 : c >= columns ? columns - 1 : (int) c;
+	}
+
+	private int row(double y) {
+		double r = Math.floor((y - minY) / cellSize);
+		return r < 0 ? 0 : r >= rows ? rows - 1 : (int) r;
+	}
+
+	private Level level(int level) {
+		if (level < 0 || level >= levels.length) {
+			throw new IllegalArgumentException(
+					"Violation of precondition. " + "level must be 0 to " + (levels.length - 1) + ". " + level);
+		}
+		Level result = levels[level];
+		if (result == null) {
+			result = level == 0 ? new Level() : new Level(level(level - 1));
+			levels[level] = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Build every level now rather than when each is first used, for example
+	 * on a background thread before the index is handed to the one drawing it.
+	 */
+	public void buildLevels() {
+		level(levels.length - 1);
+	}
+
+	// The clusters and bundles at one level. Clusters are kept by cell number
+	// at this level, in order. The first numShort bundles are short, their
+	// ends in the same or neighbouring cells, in order of the cell of their
+	// first end. The long bundles come after them.
+	private class Level {
+
+		private final int columns;
+		private final int[] cells;
+		private final double[] x;
+		private final double[] y;
+		private final int[] count;
+
+		// bundle i joins clusters bundleA[i] and bundleB[i]
+		private final int[] bundleA;
+		private final int[] bundleB;
+		private final int[] bundleCount;
+		private final int numShort;
+
+		// Level 0, one cluster per cell of the grid, made from the vertices
+		// and edges.
+		private Level() {
+			columns = SpatialIndex.this.columns;
+			int numCells = 0;
+			for (int c = 0; c < vertexStart.length - 1; c++) {
+				if (vertexStart[c] < vertexStart[c + 1]) {
+					numCells++;
+				}
+			}
+			cells = new int[numCells];
+			x = new double[numCells];
+			y = new double[numCells];
+			count = new int[numCells];
+			for (int c = 0, i = 0; c < vertexStart.length - 1; c++) {
+				if (vertexStart[c] < vertexStart[c + 1]) {
+					cells[i] = c;
+					for (int j = vertexStart[c]; j < vertexStart[c + 1]; j++) {
+						x[i] += xs[vertices[j]];
+						y[i] += ys[vertices[j]];
+					}
+					count[i] = vertexStart[c + 1] - vertexStart[c];
+					x[i] /= count[i];
+					y[i] /= count[i];
+					i++;
+				}
+			}
+			// one key per edge between two clusters, then one bundle per run
+			// of equal keys
+			long[] keys = new long[graph.numEdges()];
+			int numKeys = 0;
+			for (int e = 0; e < keys.length; e++) {
+				if (isPlaced(e, edgeSource[e])) {
+					int a = Arrays.binarySearch(cells, cellOf(xs[edgeSource[e]], ys[edgeSource[e]]));
+					int b = Arrays.binarySearch(cells, cellOf(xs[graph.target(e)], ys[graph.target(e)]));
+					if (a != b) {
+						keys[numKeys++] = key(a, b, numCells);
+					}
+				}
+			}
+			long[] unique = sortUnique(keys, numKeys);
+			bundleA = new int[unique.length];
+			bundleB = new int[unique.length];
+			bundleCount = new int[unique.length];
+			int[] counts = new int[unique.length];
+			for (int i = 0; i < numKeys; i++) {
+				counts[Arrays.binarySearch(unique, keys[i])]++;
+			}
+			numShort = setEnds(unique, counts, numCells);
+		}
+
+		// The next level up from finer, with cells twice as wide, made by
+		// merging its clusters and bundles.
+		private Level(Level finer) {
+			columns = (finer.columns + 1) / 2;
+			int[] coarse = new int[finer.cells.length];
+			for (int i = 0; i < coarse.length; i++) {
+				int row = finer.cells[i] / finer.columns;
+				int col = finer.cells[i] % finer.columns;
+				coarse[i] = (row / 2) * columns + col / 2;
+			}
+			long[] cellKeys = new long[coarse.length];
+			for (int i = 0; i < coarse.length; i++) {
+				cellKeys[i] = coarse[i];
+			}
+			long[] uniqueCells = sortUnique(cellKeys, cellKeys.length);
+			int numCells = uniqueCells.length;
+			cells = new int[numCells];
+			for (int i = 0; i < numCells; i++) {
+				cells[i] = (int) uniqueCells[i];
+			}
+			x = new double[numCells];
+			y = new double[numCells];
+			count = new int[numCells];
+			// index in this level of each cluster of finer
+			int[] parent = new int[coarse.length];
+			for (int i = 0; i < coarse.length; i++) {
+				int p = Arrays.binarySearch(cells, coarse[i]);
+				parent[i] = p;
+				x[p] += finer.x[i] * finer.count[i];
+				y[p] += finer.y[i] * finer.count[i];
+				count[p] += finer.count[i];
+			}
+			for (int i = 0; i < numCells; i++) {
+				x[i] /= count[i];
+				y[i] /= count[i];
+			}
+			long[] keys = new long[finer.bundleCount.length];
+			int numKeys = 0;
+			for (int i = 0; i < keys.length; i++) {
+				int a = parent[finer.bundleA[i]];
+				int b = parent[finer.bundleB[i]];
+				keys[i] = a == b ? -1 : key(a, b, numCells);
+				if (a != b) {
+					numKeys++;
+				}
+			}
+			long[] unique = sortUnique(keys, keys.length);
+			// drop the -1 of bundles now inside one cluster
+			if (numKeys < keys.length) {
+				unique = Arrays.copyOfRange(unique, 1, unique.length);
+			}
+			bundleA = new int[unique.length];
+			bundleB = new int[unique.length];
+			bundleCount = new int[unique.length];
+			int[] counts = new int[unique.length];
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i] >= 0) {
+					counts[Arrays.binarySearch(unique, keys[i])] += finer.bundleCount[i];
+				}
+			}
+			numShort = setEnds(unique, counts, numCells);
+		}
+
+		// Set the ends and sizes of the bundles with the given keys, in order,
+		// and counts[i] edges each, the short bundles first. Return the number
+		// of short bundles.
+		private int setEnds(long[] keys, int[] counts, int numCells) {
+			int result = 0;
+			for (long k : keys) {
+				if (isShort(k, numCells)) {
+					result++;
+				}
+			}
+			int nextShort = 0;
+			int nextLong = result;
+			for (int i = 0; i < keys.length; i++) {
+				int j = isShort(keys[i], numCells) ? nextShort++ : nextLong++;
+				bundleA[j] = (int) (keys[i] / numCells);
+				bundleB[j] = (int) (keys[i] % numCells);
+				bundleCount[j] = counts[i];
+			}
+			return result;
+		}
+
+		// true if the clusters joined by the bundle with key k are in the same
+		// or neighbouring cells
+		private boolean isShort(long k, int numCells) {
+			int a = cells[(int) (k / numCells)];
+			int b = cells[(int) (k % numCells)];
+			return Math.abs(a / columns - b / columns) <= 1 && Math.abs(a % columns - b % columns) <= 1;
+		}
+
+		// the first short bundle whose first end is in cell or a later one
+		private int firstBundle(int cell) {
+			int low = 0;
+			int high = numShort;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (cells[bundleA[mid]] < cell) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+	}
+
+	// the same key for the edges a to b and b to a
+	private static long key(int a, int b, int numCells) {
+		return (long) Math.min(a, b) * numCells + Math.max(a, b);
+	}
+
+	// the distinct values among the first length of keys, in order. keys is
+	// left unsorted.
+	private static long[] sortUnique(long[] keys, int length) {
+		long[] sorted = Arrays.copyOf(keys, length);
+		Arrays.sort(sorted);
+		int numUnique = 0;
+		for (int i = 0; i < length; i++) {
+			if (i == 0 || sorted[i] != sorted[i - 1]) {
+				sorted[numUnique++] = sorted[i];
+			}
+		}
+		return Arrays.copyOf(sorted, numUnique);
+	}
+}
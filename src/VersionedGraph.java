@@ -0,0 +1,304 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A graph that one or more threads change while any number of others search
+ * it. Readers take the current Snapshot, a CompactGraph and the version it
+ * is, and search it for as long as they like without locking; changes to the
+ * vertices, edges and positions never show up in a snapshot already taken. Writers collect changes in
+ * a Batch and apply it, which builds the next version next to the current one
+ * and then publishes it with a single volatile write, so a reader sees either
+ * all of a batch or none of it.
+ *
+ * Applying a batch copies the edge arrays once, so changes should be batched:
+ * the edges of the vertices a batch does not touch are copied in bulk and the
+ * arrays a batch does not change at all, such as the names when no vertex is
+ * added, are shared with the last version. Writers take turns, readers never
+ * wait for them.
+ *
+ * A snapshot is shared by every reader that takes it, and the CompactGraph in
+ * it still has the methods that keep results in it, so it is not immutable.
+ * Readers must use only the methods that keep no state in it, as listed in
+ * Snapshot. Metrics set on a snapshot with CompactGraph.setMetrics carry on to
+ * the versions after it.
+ */
+public class VersionedGraph {
+
+	private volatile Snapshot current;
+
+	/**
+	 * Create a graph with no vertices, at version 0.
+	 */
+	public VersionedGraph() {
+		this(new Graph().freeze());
+	}
+
+	/**
+	 * Create a graph that starts out as initial, at version 0. initial becomes
+	 * the first snapshot, so it must not be changed or searched with methods
+	 * that keep state in it once this graph is shared. <br>
+	 * pre: initial != null
+	 *
+	 * @param initial the first version of this graph.
+	 */
+	public VersionedGraph(CompactGraph initial) {
+		if (initial == null) {
+			throw new IllegalArgumentException("Violation of precondition. " + "initial may not be null.");
+		}
+		current = new Snapshot(0, initial);
+	}
+
+	/**
+	 * Return the latest version of this graph. Its vertices and edges never
+	 * change, so it can be searched while newer versions are published.
+	 *
+	 * @return the latest version of this graph.
+	 */
+	public Snapshot current() {
+		return current;
+	}
+
+	/**
+	 * Return the number of the latest version of this graph. Each batch applied
+	 * adds one.
+	 *
+	 * @return the number of the latest version.
+	 */
+	public long getVersion() {
+		return current.getVersion();
+	}
+
+	/**
+	 * Make the changes in batch to the latest version of this graph and publish
+	 * the result as the next version. The changes are made in the order they
+	 * were added to the batch, with the same meaning as the Graph methods of the
+	 * same names. If any change cannot be made nothing is published. The batch
+	 * is not changed and may be applied again or to another graph. <br>
+	 * pre: batch != null
+	 *
+	 * @param batch the changes to make.
+	 * @return the new version.
+	 * @throws NoSuchElementException if the batch sets the position of a vertex
+	 *                                that does not exist.
+	 */
+	public synchronized Snapshot apply(Batch batch) {
+		if (batch == null) {
+			throw new IllegalArgumentException("Violation of precondition. " + "batch may not be null.");
+		}
+		Snapshot last = current;
+		CompactGraph graph = last.getGraph();
+		// the vertices this batch adds, in the order it adds them
+		Map<String, Integer> added = new LinkedHashMap<>();
+		int[] sources = new int[batch.numEdges];
+		int[] dests = new int[batch.numEdges];
+		double[] costs = new double[batch.numEdges];
+		int[] placed = new int[batch.numPlaced];
+		double[] placedX = new double[batch.numPlaced];
+		double[] placedY = new double[batch.numPlaced];
+		int numEdges = 0;
+		int numPlaced = 0;
+		for (int i = 0; i < batch.size; i++) {
+			switch (batch.kinds[i]) {
+			case Batch.ADD_VERTEX:
+				idOf(graph, added, batch.first[i], true);
+				break;
+			case Batch.ADD_EDGE:
+				sources[numEdges] = idOf(graph, added, batch.first[i], true);
+				dests[numEdges] = idOf(graph, added, batch.second[i], true);
+				costs[numEdges] = batch.xs[i];
+				numEdges++;
+				break;
+			default:
+				int id = idOf(graph, added, batch.first[i], false);
+				if (id == SearchState.NO_VERTEX) {
+					throw new NoSuchElementException("No Vertex named " + batch.first[i] + " exists in this Graph");
+				}
+				placed[numPlaced] = id;
+				placedX[numPlaced] = batch.xs[i];
+				placedY[numPlaced] = batch.ys[i];
+				numPlaced++;
+			}
+		}
+		String[] addedNames = added.keySet().toArray(new String[0]);
+		CompactGraph next = graph.withChanges(addedNames, sources, dests, costs, numEdges, placed, placedX,
+				placedY, numPlaced);
+		current = new Snapshot(last.getVersion() + 1, next);
+		return current;
+	}
+
+	// Return the id of the vertex name in graph or among the vertices added
+	// so far. If there is none, add it when create is true and otherwise
+	// return NO_VERTEX.
+	private static int idOf(CompactGraph graph, Map<String, Integer> added, String name, boolean create) {
+		if (graph.containsVertex(name)) {
+			return graph.idOf(name);
+		}
+		Integer id = added.get(name);
+		if (id == null) {
+			if (!create) {
+				return SearchState.NO_VERTEX;
+			}
+			id = graph.numVertices() + added.size();
+			added.put(name, id);
+		}
+		return id;
+	}
+
+	/**
+	 * One version of a VersionedGraph. The version number and the vertices,
+	 * edges and positions of the graph never change, but the graph is shared by
+	 * every reader of this version and is not immutable.
+	 *
+	 * Any number of threads may call the lookups such as idOf, nameOf and getX,
+	 * shortestPathTree, minCostPerUnitDistance and the searches that take their
+	 * own SearchState. The other methods keep their results in the graph and
+	 * must not be called on a shared snapshot: findAllPaths,
+	 * findAllPathsParallel, getAllPaths, getDiameter and getLongestPath, the
+	 * dijkstra and findUnweightedShortestPath methods that return a
+	 * ShortestPathTree, which set the tree getNumEdgesFromStart,
+	 * getWeightedCostFromStart and findPath read, and setMetrics.
+	 */
+	public static final class Snapshot {
+
+		private final long version;
+		private final CompactGraph graph;
+
+		private Snapshot(long version, CompactGraph graph) {
+			this.version = version;
+			this.graph = graph;
+		}
+
+		/**
+		 * Return the number of this version, 0 for the first.
+		 *
+		 * @return the number of this version.
+		 */
+		public long getVersion() {
+			return version;
+		}
+
+		/**
+		 * Return the graph as it was at this version. The graph is shared, not
+		 * copied, so only the methods listed in Snapshot may be called on it.
+		 *
+		 * @return the graph at this version.
+		 */
+		public CompactGraph getGraph() {
+			return graph;
+		}
+	}
+
+	/**
+	 * Changes to make to a VersionedGraph all at once with apply. A batch is
+	 * only a list of changes and is not thread safe; each writer fills its own.
+	 */
+	public static class Batch {
+
+		private static final byte ADD_VERTEX = 0;
+		private static final byte ADD_EDGE = 1;
+		private static final byte SET_POSITION = 2;
+
+		// change i is kinds[i] with names first[i] and second[i], and the cost
+		// or position in xs[i] and ys[i]
+		private byte[] kinds = new byte[16];
+		private String[] first = new String[16];
+		private String[] second = new String[16];
+		private double[] xs = new double[16];
+		private double[] ys = new double[16];
+		private int size;
+		private int numEdges;
+		private int numPlaced;
+
+		/**
+		 * Add a vertex with the given name if there is none. <br>
+		 * pre: name != null
+		 *
+		 * @param name The name of the new vertex.
+		 */
+		public void addVertex(String name) {
+			if (name == null) {
+				throw new IllegalArgumentException("Violation of precondition. " + "Vertex name may not be null.");
+			}
+			add(ADD_VERTEX, name, null, 0, 0);
+		}
+
+		/**
+		 * Add an edge from source to dest, or change its cost if there is one,
+		 * adding the vertices if they are not present. <br>
+		 * pre: source != null, dest != null, cost > 0
+		 *
+		 * @param source cannot be null
+		 * @param dest   cannot be null
+		 * @param cost   must be > 0
+		 */
+		public void addEdge(String source, String dest, double cost) {
+			if (source == null || dest == null) {
+				throw new IllegalArgumentException("Violation of precondition. " + "Vertex names may not be null.");
+			}
+			if (cost <= 0) {
+				throw new IllegalArgumentException("Violation of precondition. " + "edge costs must be > 0." + cost);
+			}
+			add(ADD_EDGE, source, dest, cost, 0);
+			numEdges++;
+		}
+
+		/**
+		 * Set the position of the vertex with the given name, which must exist
+		 * when the batch is applied. <br>
+		 * pre: name != null, x and y are finite
+		 *
+		 * @param name The name of the vertex.
+		 * @param x    The x coordinate.
+		 * @param y    The y coordinate.
+		 */
+		public void setPosition(String name, double x, double y) {
+			if (name == null) {
+				throw new IllegalArgumentException("Violation of precondition. " + "Vertex name may not be null.");
+			}
+			if (!Double.isFinite(x) || !Double.isFinite(y)) {
+				throw new IllegalArgumentException("Violation of precondition. " + "Coordinates must be finite.");
+			}
+			add(SET_POSITION, name, null, x, y);
+			numPlaced++;
+		}
+
+		/**
+		 * Return the number of changes in this batch.
+		 *
+		 * @return the number of changes.
+		 */
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * Remove all the changes from this batch so it can be filled again.
+		 */
+		public void clear() {
+			Arrays.fill(first, 0, size, null);
+			Arrays.fill(second, 0, size, null);
+			size = 0;
+			numEdges = 0;
+			numPlaced = 0;
+		}
+
+		private void add(byte kind, String a, String b, double x, double y) {
+			if (size == kinds.length) {
+				int capacity = size * 2;
+				kinds = Arrays.copyOf(kinds, capacity);
+				first = Arrays.copyOf(first, capacity);
+				second = Arrays.copyOf(second, capacity);
+				xs = Arrays.copyOf(xs, capacity);
+				ys = Arrays.copyOf(ys, capacity);
+			}
+			kinds[size] = kind;
+			first[size] = a;
+			second[size] = b;
+			xs[size] = x;
+			ys[size] = y;
+			size++;
+		}
+	}
+}
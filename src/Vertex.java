@@ -1,13 +1,29 @@
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 
 // model a vertex. uses list of edges from this vertex to others
 public class Vertex {
 
 	private String name;
+	private int id;
 	private List<Edge> adjacent;
-	private final double INFINITY = Double.MAX_VALUE;
+
+	// Once a vertex has more than this many edges, edges are also
+	// indexed by the name of their destination so addEdge and
+	// getEdgeWithName do not have to scan the whole list.
+	private static final int INDEX_THRESHOLD = 8;
+
+	// null until the number of edges passes INDEX_THRESHOLD.
+	// Holds the same edges as adjacent.
+	private Map<String, Edge> edgeIndex;
+
+	// Optional position of this vertex, for example on the screen.
+	// Both are NaN if the vertex has no position.
+	private double x;
+	private double y;
 
 	// Number of other vertices this vertex is connected to.
 	// This variable should be updated in the findAllPaths method.
@@ -21,24 +37,12 @@ public class Vertex {
 	// This variable should be updated in the findAllPaths method.
 	public double totalWeightedPathLength;
 
-	// for graph algorithms
-	public double weightedCostFromStartVertex;
-	public int numEdgesFromStartVertex;
-	public Vertex prev;
-	public int scratch;
-
-	public Vertex(String n) {
+	public Vertex(String n, int i) {
 		name = n;
-		adjacent = new LinkedList<>();
-		reset();
-	}
-
-	// called when looking for new shortest path info
-	public void reset() {
-		weightedCostFromStartVertex = INFINITY;
-		numEdgesFromStartVertex = Integer.MAX_VALUE;
-		prev = null;
-		scratch = 0;
+		id = i;
+		adjacent = new ArrayList<>();
+		x = Double.NaN;
+		y = Double.NaN;
 	}
 
 	// zero out the sum of paths
@@ -60,16 +64,55 @@ public class Vertex {
 	public boolean addEdge(Vertex dest, double cost) {
 		Edge e = getEdgeWithName(dest.name);
 		if (e == null) {
-			adjacent.add(new Edge(dest, cost));
+			e = new Edge(dest, cost);
+			adjacent.add(e);
+			if (edgeIndex != null) {
+				edgeIndex.put(dest.name, e);
+			} else if (adjacent.size() > INDEX_THRESHOLD) {
+				buildEdgeIndex();
+			}
+			return false;
 		} else {
 			e.setCost(cost);
+			return true;
+		}
+	}
+
+	// index all the edges from this vertex by destination name
+	private void buildEdgeIndex() {
+		edgeIndex = new HashMap<>();
+		for (Edge e : adjacent) {
+			edgeIndex.put(e.getDest().name, e);
 		}
-		return e != null;
 	}
 	
 	public String getName() {
 		return name;
 	}
+
+	public boolean hasPosition() {
+		return !Double.isNaN(x);
+	}
+
+	public double getX() {
+		return x;
+	}
+
+	public double getY() {
+		return y;
+	}
+
+	// pre: neither coordinate is NaN
+	public void setPosition(double newX, double newY) {
+		x = newX;
+		y = newY;
+	}
+
+	// The index of this vertex in the Graph that created it.
+	// Ids are dense, 0 to number of vertices - 1.
+	public int getId() {
+		return id;
+	}
 	
 	public List<Edge> getAdjacent() {
 		return adjacent;
@@ -91,6 +134,9 @@ public class Vertex {
 	// dest if one exists. If one does not
 	// exist return null.
 	public Edge getEdgeWithName(String dest) {
+		if (edgeIndex != null) {
+			return edgeIndex.get(dest);
+		}
 		for (Edge e : adjacent) {
 			if (e.getDest().name.equals(dest)) {
 				return e;
@@ -1,21 +1,534 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
 import processing.core.PApplet;
+import processing.event.MouseEvent;
 
+/**
+ * Draws a Graph at the positions of its vertices. Drag to pan, turn the mouse
+ * wheel to zoom, move over a vertex to highlight it and click it to select it
+ * and its edges. Run with the name of an edge list file or a file saved with
+ * GraphSnapshot to show that graph, or with no arguments to show a generated
+ * grid of 100,000 vertices. If any vertex has no position a ForceLayout places
+ * the vertices on a background thread, and each set of positions it publishes
+ * is drawn as it arrives, so the window keeps responding while the layout
+ * settles.
+ *
+ * Each frame only draws what has to change. The vertices and edges are kept in
+ * a SpatialIndex, so drawing a part of the screen only looks at what is in that
+ * part. A pan or zoom redraws the whole window but skips everything off screen.
+ * Highlighting or selecting a vertex only redraws the rectangles around the
+ * vertices whose look changed. When zoomed out far enough that single vertices
+ * would be a few pixels apart, the clusters and bundles of a coarser level of
+ * the index are drawn instead, so a frame never draws more than a few thousand
+ * shapes.
+ *
+ * Select a vertex and press d to watch dijkstra's algorithm search from it, or
+ * b for a breadth first search. The search runs on a worker thread into a
+ * SearchEventLog and each frame replays the next steps of the log, redrawing
+ * only around the vertices and edges they change: vertices turn orange when
+ * reached and green when settled, the edges of the best paths so far are drawn
+ * in green and the edge being looked along in blue. Press + or - to speed up or
+ * slow down, space to pause, the left and right arrow keys to step back or
+ * forward a tenth of the search, and c to clear it.
+ *
+ * Press m to count the work of the searches in a SearchMetrics and show the
+ * counts in the top left corner, and m again to stop.
+ */
 public class VisGraph extends PApplet {
 
+	private static final int NO_VERTEX = SearchState.NO_VERTEX;
+
+	// the grid shown when no file is given is this many vertices on a side
+	private static final int DEFAULT_SIDE = 316;
+
+	private static final float VERTEX_PIXELS = 6;
+
+	// how near, in pixels, the mouse must be to a vertex to pick it
+	private static final float PICK_PIXELS = 8;
+
+	// Below this many pixels per cell of the index, draw clusters and bundles
+	// instead of vertices and edges. With a few vertices per cell this keeps
+	// a full window to a few thousand vertices.
+	private static final float LOD_CELL_PIXELS = 24;
+
+	private static final double ZOOM_STEP = 1.2;
+
+	private static final int BACKGROUND = 255;
+	private static final int EDGE = 190;
+	private static final int VERTEX = 60;
+
+	// search steps replayed each frame to start with, and the most and least
+	private static final int STEPS_PER_FRAME = 64;
+	private static final int MAX_STEPS_PER_FRAME = 1 << 20;
+
+	// Past this many changed rectangles in a frame redraw the whole window,
+	// which is then quicker than redrawing them one by one.
+	private static final int MAX_DIRTY = 200;
+
+	// size of the metrics overlay, in pixels
+	private static final float OVERLAY_WIDTH = 560;
+	private static final float OVERLAY_HEIGHT = 230;
+
+	private CompactGraph graph;
+	private SpatialIndex index;
+
+	// places the vertices if some have no position, otherwise null
+	private ForceLayout layout;
+
+	// keep the whole layout in view as it changes, until the user pans or
+	// zooms
+	private boolean followLayout;
+
+	// a point (x, y) of the graph is drawn at ((x - originX) * scale,
+	// (y - originY) * scale) in the window
+	private double originX;
+	private double originY;
+	private double scale = 1;
+
+	// the whole window must be redrawn, after a pan, zoom or resize
+	private boolean redrawAll = true;
+	private int drawnWidth;
+	private int drawnHeight;
+
+	// window rectangles to redraw next frame, rectangle i is left, top,
+	// right and bottom at dirty[4 * i] to dirty[4 * i + 3]. Grown as needed
+	// and reused every frame.
+	private float[] dirty = new float[4 * 16];
+	private int numDirty;
+
+	private int hovered = NO_VERTEX;
+	private int selected = NO_VERTEX;
+
+	// the search being replayed, or null
+	private SearchReplay replay;
+	private int stepsPerFrame = STEPS_PER_FRAME;
+	private boolean paused;
+
+	// the edge the last replayed step looked along, or NO_VERTEX
+	private int visitFrom = NO_VERTEX;
+	private int visitTo = NO_VERTEX;
+
+	// the counts shown in the overlay, or null when it is off
+	private SearchMetrics metrics;
+
+	// made once so drawing a frame creates no objects
+	private final SpatialIndex.IdVisitor drawEdge = e -> line(screenX(index.getSource(e)),
+			screenY(index.getSource(e)), screenX(index.getTarget(e)), screenY(index.getTarget(e)));
+	private final SpatialIndex.IdVisitor drawVertex = v -> ellipse(screenX(v), screenY(v), VERTEX_PIXELS,
+			VERTEX_PIXELS);
+	private final SpatialIndex.BundleVisitor drawBundle = (x1, y1, x2, y2, numEdges) -> {
+		strokeWeight(Math.min(6, 1 + (float) Math.log(numEdges)));
+		line(screenX(x1), screenY(y1), screenX(x2), screenY(y2));
+	};
+	private final SpatialIndex.ClusterVisitor drawCluster = (x, y, numVertices) -> {
+		float size = Math.min(LOD_CELL_PIXELS, VERTEX_PIXELS / 2 + (float) Math.sqrt(numVertices));
+		ellipse(screenX(x), screenY(y), size, size);
+	};
+	private final SpatialIndex.IdVisitor drawTreeEdge = e -> {
+		int target = index.getTarget(e);
+		if (replay.getStatus(target) != SearchReplay.UNSEEN && replay.getPrev(target) == index.getSource(e)) {
+			drawEdge.visit(e);
+		}
+	};
+	private final SpatialIndex.IdVisitor drawSearchVertex = v -> {
+		int status = replay.getStatus(v);
+		if (status != SearchReplay.UNSEEN) {
+			if (status == SearchReplay.SETTLED) {
+				fill(40, 160, 80);
+			} else {
+				fill(240, 150, 30);
+			}
+			drawVertex.visit(v);
+		}
+	};
+
+	// marks what each replayed step changes, before it is applied
+	private final SearchListener markStep = new SearchListener() {
+
+		public void visited(int from, int to) {
+			markEdge(visitFrom, visitTo);
+			visitFrom = from;
+			visitTo = to;
+			markEdge(from, to);
+		}
+
+		public void relaxed(int from, int to, double cost) {
+			markEdge(replay.getPrev(to), to);
+			markEdge(from, to);
+			markVertex(to);
+		}
+
+		public void settled(int v) {
+			markVertex(v);
+		}
+	};
+
 	public static void main(String[] args) {
-		PApplet.main("VisGraph");
+		PApplet.main("VisGraph", args);
 	}
-	
+
 	public void settings() {
 		size(1200, 700);
 	}
-	
+
 	public void setup() {
-		
+		surface.setResizable(true);
+		frameRate(60);
+		if (args != null && args.length > 0) {
+			try {
+				if (GraphSnapshot.isSnapshot(args[0])) {
+					graph = GraphSnapshot.load(args[0]);
+				} else {
+					graph = EdgeListLoader.load(args[0]).freeze();
+				}
+			} catch (IOException e) {
+				System.err.println("Unable to read " + args[0] + ": " + e.getMessage());
+				exit();
+				return;
+			}
+		} else {
+			graph = GraphGenerator.grid(DEFAULT_SIDE, DEFAULT_SIDE, 0).freeze();
+		}
+		boolean allPlaced = true;
+		for (int v = 0; v < graph.numVertices() && allPlaced; v++) {
+			allPlaced = graph.hasPosition(v);
+		}
+		if (allPlaced) {
+			index = new SpatialIndex(graph);
+		} else {
+			layout = new ForceLayout(graph, ForkJoinPool.commonPool(), 0);
+			index = layout.latest();
+			followLayout = true;
+			layout.start();
+		}
+		fitToWindow();
 	}
-	
+
 	public void draw() {
-		
+		if (index == null) {
+			return;
+		}
+		if (layout != null && layout.latest() != index) {
+			// a new set of positions; the ids of the vertices are the same
+			index = layout.latest();
+			if (followLayout) {
+				fitToWindow();
+			}
+			redrawAll = true;
+		}
+		if (width != drawnWidth || height != drawnHeight) {
+			redrawAll = true;
+			drawnWidth = width;
+			drawnHeight = height;
+		}
+		if (replay != null && !paused) {
+			replay.advance(stepsPerFrame, markStep);
+		}
+		if (metrics != null) {
+			// the counts may change on the search thread at any time
+			mark(0, 0, OVERLAY_WIDTH, OVERLAY_HEIGHT);
+		}
+		if (numDirty > MAX_DIRTY) {
+			redrawAll = true;
+		}
+		if (redrawAll) {
+			redrawAll = false;
+			redraw(0, 0, width, height);
+		} else {
+			for (int i = 0; i < 4 * numDirty; i += 4) {
+				redraw(dirty[i], dirty[i + 1], dirty[i + 2], dirty[i + 3]);
+			}
+		}
+		numDirty = 0;
 	}
 
+	public void mouseDragged() {
+		originX -= (mouseX - pmouseX) / scale;
+		originY -= (mouseY - pmouseY) / scale;
+		followLayout = false;
+		redrawAll = true;
+	}
+
+	public void mouseWheel(MouseEvent event) {
+		// keep the point under the mouse where it is
+		double x = graphX(mouseX);
+		double y = graphY(mouseY);
+		scale *= Math.pow(ZOOM_STEP, -event.getCount());
+		originX = x - mouseX / scale;
+		originY = y - mouseY / scale;
+		followLayout = false;
+		redrawAll = true;
+	}
+
+	public void mouseMoved() {
+		int v = pick();
+		if (v != hovered) {
+			markVertex(hovered);
+			hovered = v;
+			markVertex(hovered);
+		}
+	}
+
+	public void mouseClicked() {
+		int v = pick();
+		if (v != selected) {
+			markSelection(selected);
+			selected = v;
+			markSelection(selected);
+		}
+	}
+
+	public void keyPressed() {
+		if (key == CODED) {
+			if (replay != null && (keyCode == LEFT || keyCode == RIGHT)) {
+				long step = Math.max(1, replay.getLog().size() / 10);
+				replay.seek(Math.max(0, replay.position() + (keyCode == LEFT ? -step : step)));
+				visitFrom = NO_VERTEX;
+				visitTo = NO_VERTEX;
+				redrawAll = true;
+			}
+		} else if (key == 'd' || key == 'b') {
+			startSearch(key == 'd');
+		} else if (key == '+' || key == '=') {
+			stepsPerFrame = Math.min(MAX_STEPS_PER_FRAME, stepsPerFrame * 2);
+		} else if (key == '-') {
+			stepsPerFrame = Math.max(1, stepsPerFrame / 2);
+		} else if (key == ' ') {
+			paused = !paused;
+		} else if (key == 'm') {
+			metrics = metrics == null ? new SearchMetrics() : null;
+			graph.setMetrics(metrics);
+			redrawAll = true;
+		} else if (key == 'c') {
+			replay = null;
+			visitFrom = NO_VERTEX;
+			visitTo = NO_VERTEX;
+			redrawAll = true;
+		}
+	}
+
+	// Search from the selected vertex on a worker thread and replay the steps
+	// as they are recorded. A search still running is left to finish; its log
+	// is no longer shown.
+	private void startSearch(boolean weighted) {
+		if (selected == NO_VERTEX) {
+			return;
+		}
+		SearchEventLog log = new SearchEventLog();
+		int start = selected;
+		Thread worker = new Thread(() -> graph.shortestPathTree(start, weighted, log), "search");
+		worker.setDaemon(true);
+		worker.start();
+		replay = new SearchReplay(log, graph.numVertices());
+		paused = false;
+		visitFrom = NO_VERTEX;
+		visitTo = NO_VERTEX;
+		redrawAll = true;
+	}
+
+	// the vertex near the mouse, or NO_VERTEX
+	private int pick() {
+		if (index == null) {
+			return NO_VERTEX;
+		}
+		return index.nearestVertex(graphX(mouseX), graphY(mouseY), PICK_PIXELS / scale);
+	}
+
+	// Redraw everything in the window rectangle from (x1, y1) to (x2, y2).
+	private void redraw(float x1, float y1, float x2, float y2) {
+		clip(x1, y1, x2 - x1, y2 - y1);
+		noStroke();
+		fill(BACKGROUND);
+		rect(x1, y1, x2 - x1, y2 - y1);
+
+		// anything drawn within a vertex of the rectangle may show in it
+		float pad = LOD_CELL_PIXELS;
+		double left = graphX(x1 - pad);
+		double top = graphY(y1 - pad);
+		double right = graphX(x2 + pad);
+		double bottom = graphY(y2 + pad);
+		int level = detailLevel();
+		stroke(EDGE);
+		strokeWeight(1);
+		if (level < 0) {
+			index.forEachEdge(left, top, right, bottom, drawEdge);
+			noStroke();
+			fill(VERTEX);
+			index.forEachVertex(left, top, right, bottom, drawVertex);
+		} else {
+			index.forEachBundle(level, left, top, right, bottom, drawBundle);
+			noStroke();
+			fill(VERTEX);
+			index.forEachCluster(level, left, top, right, bottom, drawCluster);
+		}
+
+		if (replay != null) {
+			if (level < 0) {
+				stroke(40, 160, 80);
+				strokeWeight(2);
+				index.forEachEdge(left, top, right, bottom, drawTreeEdge);
+				if (visitFrom != NO_VERTEX && index.isPlaced(visitFrom) && index.isPlaced(visitTo)) {
+					stroke(40, 90, 200);
+					line(screenX(visitFrom), screenY(visitFrom), screenX(visitTo), screenY(visitTo));
+				}
+			}
+			noStroke();
+			index.forEachVertex(left, top, right, bottom, drawSearchVertex);
+		}
+
+		if (selected != NO_VERTEX) {
+			stroke(200, 40, 40);
+			strokeWeight(2);
+			for (int e = graph.firstEdge(selected); e < graph.endEdge(selected); e++) {
+				if (index.isPlaced(graph.target(e))) {
+					drawEdge.visit(e);
+				}
+			}
+			noStroke();
+			fill(200, 40, 40);
+			ellipse(screenX(selected), screenY(selected), 2 * VERTEX_PIXELS, 2 * VERTEX_PIXELS);
+			text(graph.nameOf(selected), screenX(selected) + VERTEX_PIXELS, screenY(selected) - VERTEX_PIXELS);
+		}
+		if (hovered != NO_VERTEX) {
+			noFill();
+			stroke(40, 90, 200);
+			strokeWeight(2);
+			ellipse(screenX(hovered), screenY(hovered), 2 * VERTEX_PIXELS, 2 * VERTEX_PIXELS);
+		}
+		if (metrics != null && x1 < OVERLAY_WIDTH && y1 < OVERLAY_HEIGHT) {
+			noStroke();
+			fill(BACKGROUND, 220);
+			rect(0, 0, OVERLAY_WIDTH, OVERLAY_HEIGHT);
+			fill(VERTEX);
+			text(metrics.toString(), VERTEX_PIXELS, VERTEX_PIXELS, OVERLAY_WIDTH - VERTEX_PIXELS,
+					OVERLAY_HEIGHT - VERTEX_PIXELS);
+		}
+		noClip();
+	}
+
+	// -1 to draw single vertices and edges, otherwise the level of the
+	// index whose cells are at least LOD_CELL_PIXELS wide on screen
+	private int detailLevel() {
+		double cellPixels = index.getCellSize() * scale;
+		if (cellPixels >= LOD_CELL_PIXELS) {
+			return -1;
+		}
+		int level = 0;
+		while (cellPixels < LOD_CELL_PIXELS && level < index.numLevels() - 1) {
+			level++;
+			cellPixels *= 2;
+		}
+		return level;
+	}
+
+	// Redraw the area around v next frame.
+	private void markVertex(int v) {
+		if (v != NO_VERTEX) {
+			float r = VERTEX_PIXELS + 2;
+			mark(screenX(v) - r, screenY(v) - r, screenX(v) + r, screenY(v) + r);
+		}
+	}
+
+	// Redraw the area around the edge from u to v next frame, if both ends
+	// are placed.
+	private void markEdge(int u, int v) {
+		if (u != NO_VERTEX && v != NO_VERTEX && index.isPlaced(u) && index.isPlaced(v)) {
+			float r = VERTEX_PIXELS + 2;
+			mark(Math.min(screenX(u), screenX(v)) - r, Math.min(screenY(u), screenY(v)) - r,
+					Math.max(screenX(u), screenX(v)) + r, Math.max(screenY(u), screenY(v)) + r);
+		}
+	}
+
+	// Redraw the area around v, its label and its edges next frame.
+	private void markSelection(int v) {
+		if (v != NO_VERTEX) {
+			float r = VERTEX_PIXELS + 2;
+			float left = screenX(v) - r;
+			float top = screenY(v) - r - textAscent() - textDescent() - VERTEX_PIXELS;
+			float right = screenX(v) + r + textWidth(graph.nameOf(v)) + VERTEX_PIXELS;
+			float bottom = screenY(v) + r;
+			for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+				int w = graph.target(e);
+				if (index.isPlaced(w)) {
+					left = Math.min(left, screenX(w) - r);
+					top = Math.min(top, screenY(w) - r);
+					right = Math.max(right, screenX(w) + r);
+					bottom = Math.max(bottom, screenY(w) + r);
+				}
+			}
+			mark(left, top, right, bottom);
+		}
+	}
+
+	// Redraw the window rectangle from (x1, y1) to (x2, y2) next frame. Parts
+	// outside the window are dropped.
+	private void mark(float x1, float y1, float x2, float y2) {
+		x1 = Math.max(0, (float) Math.floor(x1));
+		y1 = Math.max(0, (float) Math.floor(y1));
+		x2 = Math.min(width, (float) Math.ceil(x2));
+		y2 = Math.min(height, (float) Math.ceil(y2));
+		// past MAX_DIRTY the whole window is redrawn, so no more are kept
+		if (x1 < x2 && y1 < y2 && numDirty <= MAX_DIRTY) {
+			if (4 * numDirty == dirty.length) {
+				dirty = Arrays.copyOf(dirty, 2 * dirty.length);
+			}
+			int i = 4 * numDirty;
+			dirty[i] = x1;
+			dirty[i + 1] = y1;
+			dirty[i + 2] = x2;
+			dirty[i + 3] = y2;
+			numDirty++;
+		}
+	}
+
+	// Show all the placed vertices.
+	private void fitToWindow() {
+		double left = Double.POSITIVE_INFINITY;
+		double top = Double.POSITIVE_INFINITY;
+		double right = Double.NEGATIVE_INFINITY;
+		double bottom = Double.NEGATIVE_INFINITY;
+		for (int v = 0; v < graph.numVertices(); v++) {
+			if (index.isPlaced(v)) {
+				left = Math.min(left, index.getX(v));
+				top = Math.min(top, index.getY(v));
+				right = Math.max(right, index.getX(v));
+				bottom = Math.max(bottom, index.getY(v));
+			}
+		}
+		if (left > right) {
+			return;
+		}
+		double margin = 2 * VERTEX_PIXELS;
+		scale = Math.min((width - 2 * margin) / Math.max(right - left, 1e-9),
+				(height - 2 * margin) / Math.max(bottom - top, 1e-9));
+		originX = left - margin / scale;
+		originY = top - margin / scale;
+		redrawAll = true;
+	}
+
+	private float screenX(int v) {
+		return screenX(index.getX(v));
+	}
+
+	private float screenY(int v) {
+		return screenY(index.getY(v));
+	}
+
+	private float screenX(double x) {
+		return (float) ((x - originX) * scale);
+	}
+
+	private float screenY(double y) {
+		return (float) ((y - originY) * scale);
+	}
+
+	private double graphX(float x) {
+		return originX + x / scale;
+	}
+
+	private double graphY(float y) {
+		return originY + y / scale;
+	}
 }